@@ -0,0 +1,63 @@
+package dev.tommyjs.jobserve.observer;
+
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Subscriptions made on behalf of probes attached to emitters which do not support probes, used by
+ * the default {@link ObserverEmitter#attach} and {@link ObserverEmitter#detach}. Emitters are only
+ * weakly referenced, and an emitter is forgotten once all of its probes have been detached.
+ */
+final class AttachedProbes {
+
+    private static final Map<ObserverEmitter, Map<Attachment, ArrayDeque<ObserverSub>>> SUBSCRIPTIONS = new WeakHashMap<>();
+
+    private AttachedProbes() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static void attach(@NotNull ObserverEmitter emitter, @NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        ObserverSub subscription = emitter.observe((ObserverKey<Object>) key, probe::onEmission);
+        synchronized (SUBSCRIPTIONS) {
+            SUBSCRIPTIONS.computeIfAbsent(emitter, e -> new HashMap<>())
+                .computeIfAbsent(new Attachment(key, probe), a -> new ArrayDeque<>(1))
+                .add(subscription);
+        }
+    }
+
+    static void detach(@NotNull ObserverEmitter emitter, @NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        ObserverSub subscription;
+        synchronized (SUBSCRIPTIONS) {
+            Map<Attachment, ArrayDeque<ObserverSub>> attachments = SUBSCRIPTIONS.get(emitter);
+            if (attachments == null) {
+                return;
+            }
+
+            Attachment attachment = new Attachment(key, probe);
+            ArrayDeque<ObserverSub> subscriptions = attachments.get(attachment);
+            if (subscriptions == null) {
+                return;
+            }
+
+            subscription = subscriptions.poll();
+            if (subscriptions.isEmpty()) {
+                attachments.remove(attachment);
+                if (attachments.isEmpty()) {
+                    SUBSCRIPTIONS.remove(emitter);
+                }
+            }
+        }
+
+        subscription.cancel();
+    }
+
+    private record Attachment(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+
+    }
+
+}
@@ -0,0 +1,58 @@
+package dev.tommyjs.jobserve.observer;
+
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown by the emission which started a cascade, once a nested emission exceeded the cascade
+ * limits of its emitter. All emissions still queued are discarded.
+ * @see EmitterOptions#cascade(int, int)
+ */
+public class CascadeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final @NotNull List<ObserverKey<?>> path;
+    private final boolean cycle;
+
+    public CascadeException(@NotNull String reason, @NotNull List<ObserverKey<?>> path) {
+        super(reason + ": " + path.stream().map(key -> key.getType().toString()).collect(Collectors.joining(" -> ")));
+        this.path = List.copyOf(path);
+        this.cycle = hasCycle(path);
+    }
+
+    /**
+     * Returns the keys of the emissions leading to the rejected emission, starting with the key of
+     * the emission which started the cascade, and ending with the key of the rejected emission.
+     * @return emission path
+     */
+    public @NotNull List<ObserverKey<?>> getPath() {
+        return path;
+    }
+
+    /**
+     * Returns whether a key appears more than once in the emission path, which usually means
+     * subscribers are feeding back into each other.
+     * @return whether the path contains a cycle
+     */
+    public boolean isCycle() {
+        return cycle;
+    }
+
+    private static boolean hasCycle(@NotNull List<ObserverKey<?>> path) {
+        Set<ObserverKey<?>> seen = new HashSet<>();
+        for (ObserverKey<?> key : path) {
+            if (!seen.add(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,87 @@
+package dev.tommyjs.jobserve.observer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Subscription made up of several subscriptions, created by {@link ObserverSub#composite}. Its
+ * statistics aggregate those of every part which tracks them.
+ */
+final class CompositeObserverSub implements ObserverSub, SubscriberStats {
+
+    private final @NotNull ObserverSub @NotNull [] subs;
+
+    CompositeObserverSub(@NotNull ObserverSub @NotNull [] subs) {
+        this.subs = subs;
+    }
+
+    @Override
+    public void cancel() {
+        for (ObserverSub sub : subs) {
+            sub.cancel();
+        }
+    }
+
+    @Override
+    public @Nullable SubscriberStats getStats() {
+        for (ObserverSub sub : subs) {
+            if (sub.getStats() != null) {
+                return this;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public long getFailures() {
+        long failures = 0;
+        for (ObserverSub sub : subs) {
+            SubscriberStats stats = sub.getStats();
+            if (stats != null) {
+                failures += stats.getFailures();
+            }
+        }
+
+        return failures;
+    }
+
+    @Override
+    public int getConsecutiveFailures() {
+        int failures = 0;
+        for (ObserverSub sub : subs) {
+            SubscriberStats stats = sub.getStats();
+            if (stats != null) {
+                failures = Math.max(failures, stats.getConsecutiveFailures());
+            }
+        }
+
+        return failures;
+    }
+
+    @Override
+    public long getTrips() {
+        long trips = 0;
+        for (ObserverSub sub : subs) {
+            SubscriberStats stats = sub.getStats();
+            if (stats != null) {
+                trips += stats.getTrips();
+            }
+        }
+
+        return trips;
+    }
+
+    @Override
+    public boolean isSuspended() {
+        for (ObserverSub sub : subs) {
+            SubscriberStats stats = sub.getStats();
+            if (stats != null && stats.isSuspended()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,13 @@
+package dev.tommyjs.jobserve.observer;
+
+import dev.tommyjs.jobserve.util.Confined;
+
+/**
+ * An {@link ObserverEmitter} confined to a single owning thread, created with
+ * {@link ObserverEmitter#createConfined()}. Subscribers are stored in plain arrays and maps, so
+ * subscribing and emitting perform no volatile accesses, CAS, or locking.
+ * @see Confined
+ */
+public interface ConfinedObserverEmitter extends ObserverEmitter, Confined {
+
+}
@@ -0,0 +1,21 @@
+package dev.tommyjs.jobserve.observer;
+
+/**
+ * Represents the state of a single emission, shared between all subscribers called during that
+ * emission. A context is only valid for the duration of the callback it was passed to.
+ */
+public interface EmissionContext {
+
+    /**
+     * Cancels this emission. No further subscribers will be called, with the exception of
+     * subscribers in the {@link ObserverPriority#MONITOR} phase.
+     */
+    void cancel();
+
+    /**
+     * Checks whether this emission has been cancelled by an earlier subscriber.
+     * @return whether the emission is cancelled
+     */
+    boolean isCancelled();
+
+}
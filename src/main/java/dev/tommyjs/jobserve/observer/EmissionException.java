@@ -0,0 +1,36 @@
+package dev.tommyjs.jobserve.observer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Thrown, or used to complete a future exceptionally, when one or more subscribers of an emission
+ * fail. The first failure is the cause of this exception, and any further failures are attached as
+ * suppressed exceptions.
+ */
+public final class EmissionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // copied with List.copyOf, which is serializable
+    @SuppressWarnings("serial")
+    private final @NotNull List<Throwable> failures;
+
+    public EmissionException(@NotNull List<Throwable> failures) {
+        super(failures.size() + " subscriber(s) failed during emission", failures.isEmpty() ? null : failures.get(0));
+        this.failures = List.copyOf(failures);
+        for (int i = 1; i < failures.size(); i++) {
+            addSuppressed(failures.get(i));
+        }
+    }
+
+    /**
+     * Returns all subscriber failures, in the order they occurred.
+     * @return subscriber failures
+     */
+    public @NotNull List<Throwable> getFailures() {
+        return failures;
+    }
+
+}
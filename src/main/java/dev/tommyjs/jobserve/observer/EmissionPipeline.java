@@ -0,0 +1,264 @@
+package dev.tommyjs.jobserve.observer;
+
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A chain of operators applied to the emissions on an {@link ObserverKey}, obtained with
+ * {@link Observable#on(ObserverKey)}. Operators return new pipeline stages, and nothing is
+ * subscribed until {@link #subscribe(Consumer)} is called.
+ * <p>
+ * All stages derived from the same {@link Observable#on(ObserverKey)} call form a tree, which is
+ * driven by a single subscription on the key. Each stage object is evaluated once per emission,
+ * however many subscribers are downstream of it, so an expensive filter can be shared by building
+ * it once and subscribing several times from it. Sharing is by stage object only. Identical
+ * operators chained separately, even with the same function, are separate stages, and each call to
+ * {@link Observable#on(ObserverKey)} starts a new tree with its own subscription. Emissions travel
+ * through the tree as plain values, so no objects are allocated per emission.
+ * @param <T> stage output type
+ */
+public final class EmissionPipeline<T> {
+
+    private final @NotNull Root root;
+    private final @NotNull Stage stage;
+
+    private EmissionPipeline(@NotNull Root root, @NotNull Stage stage) {
+        this.root = root;
+        this.stage = stage;
+    }
+
+    /**
+     * Only passes values matching a predicate.
+     * @param predicate predicate values must match
+     * @return new pipeline stage
+     */
+    public @NotNull EmissionPipeline<T> filter(@NotNull Predicate<? super T> predicate) {
+        return new EmissionPipeline<>(root, new Stage(stage, Stage.FILTER, predicate, 0));
+    }
+
+    /**
+     * Transforms every value with a function.
+     * @param function transformation to apply
+     * @return new pipeline stage
+     * @param <R> transformed type
+     */
+    public <R> @NotNull EmissionPipeline<R> map(@NotNull Function<? super T, ? extends R> function) {
+        return new EmissionPipeline<>(root, new Stage(stage, Stage.MAP, function, 0));
+    }
+
+    /**
+     * Drops values equal to the previous value which reached this stage.
+     * @return new pipeline stage
+     */
+    public @NotNull EmissionPipeline<T> distinctUntilChanged() {
+        return new EmissionPipeline<>(root, new Stage(stage, Stage.DISTINCT, null, 0));
+    }
+
+    /**
+     * Passes a value, then drops all values reaching this stage within the given interval.
+     * @param interval minimum interval between passed values
+     * @return new pipeline stage
+     */
+    public @NotNull EmissionPipeline<T> throttle(@NotNull Duration interval) {
+        long nanos = interval.toNanos();
+        if (nanos <= 0) {
+            throw new IllegalArgumentException("Throttle interval must be positive");
+        }
+
+        return new EmissionPipeline<>(root, new Stage(stage, Stage.THROTTLE, null, nanos));
+    }
+
+    /**
+     * Subscribes a consumer to the output of this pipeline stage. Cancelling the subscription
+     * detaches the consumer, along with any stages no longer leading to a consumer, and cancels the
+     * underlying subscription once no consumers remain.
+     * @param consumer callback to be called with every value passing this stage
+     * @return cancellable subscription
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull ObserverSub subscribe(@NotNull Consumer<? super T> consumer) {
+        return root.subscribe(stage, (Consumer<Object>) consumer);
+    }
+
+    /**
+     * Creates a new pipeline on a key of an observable object.
+     * @param object observable object
+     * @param key observer key
+     * @return pipeline passing every emission
+     * @param <T> emission type
+     */
+    public static <T> @NotNull EmissionPipeline<T> create(@NotNull Observable object, @NotNull ObserverKey<T> key) {
+        Root root = new Root(object, key);
+        return new EmissionPipeline<>(root, root);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static class Stage {
+
+        static final int ROOT = 0;
+        static final int FILTER = 1;
+        static final int MAP = 2;
+        static final int DISTINCT = 3;
+        static final int THROTTLE = 4;
+
+        private static final Object NONE = new Object();
+        private static final Stage[] NO_STAGES = new Stage[0];
+        private static final Consumer<?>[] NO_CONSUMERS = new Consumer<?>[0];
+        private static final VarHandle LAST;
+        private static final VarHandle LAST_PASS;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                LAST = lookup.findVarHandle(Stage.class, "last", Object.class);
+                LAST_PASS = lookup.findVarHandle(Stage.class, "lastPass", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final @Nullable Stage parent;
+        private final int kind;
+        private final @Nullable Object function;
+        private final long interval;
+
+        private volatile Stage @NotNull [] children = NO_STAGES;
+        private volatile Consumer<Object> @NotNull [] consumers = (Consumer<Object>[]) NO_CONSUMERS;
+        private boolean linked;
+
+        private volatile @Nullable Object last = NONE;
+        private volatile long lastPass;
+
+        private Stage(@Nullable Stage parent, int kind, @Nullable Object function, long interval) {
+            this.parent = parent;
+            this.kind = kind;
+            this.function = function;
+            this.interval = interval;
+            this.lastPass = System.nanoTime() - interval;
+        }
+
+        void push(@Nullable Object value) {
+            switch (kind) {
+                case FILTER -> {
+                    if (!((Predicate<Object>) function).test(value)) {
+                        return;
+                    }
+                }
+                case MAP -> value = ((Function<Object, Object>) function).apply(value);
+                case DISTINCT -> {
+                    Object prev = LAST.getAndSet(this, value);
+                    if (prev != NONE && Objects.equals(prev, value)) {
+                        return;
+                    }
+                }
+                case THROTTLE -> {
+                    long now = System.nanoTime();
+                    long prev = lastPass;
+                    if (now - prev < interval || !LAST_PASS.compareAndSet(this, prev, now)) {
+                        return;
+                    }
+                }
+            }
+
+            for (Consumer<Object> consumer : consumers) {
+                consumer.accept(value);
+            }
+
+            for (Stage child : children) {
+                child.push(value);
+            }
+        }
+
+        boolean isEmpty() {
+            return consumers.length == 0 && children.length == 0;
+        }
+
+    }
+
+    private static final class Root extends Stage {
+
+        private final @NotNull Observable object;
+        private final @NotNull ObserverKey<?> key;
+        private @Nullable ObserverSub subscription;
+
+        private Root(@NotNull Observable object, @NotNull ObserverKey<?> key) {
+            super(null, ROOT, null, 0);
+            this.object = object;
+            this.key = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized @NotNull ObserverSub subscribe(@NotNull Stage stage, @NotNull Consumer<Object> consumer) {
+            Consumer<Object>[] consumers = Arrays.copyOf(stage.consumers, stage.consumers.length + 1);
+            consumers[consumers.length - 1] = consumer;
+            stage.consumers = consumers;
+
+            Stage child = stage;
+            while (child.parent != null && !child.linked) {
+                Stage parent = child.parent;
+                Stage[] children = Arrays.copyOf(parent.children, parent.children.length + 1);
+                children[children.length - 1] = child;
+                parent.children = children;
+                child.linked = true;
+                child = parent;
+            }
+
+            if (subscription == null) {
+                subscription = object.observe((ObserverKey<Object>) key, this::push);
+            }
+
+            return () -> unsubscribe(stage, consumer);
+        }
+
+        private synchronized void unsubscribe(@NotNull Stage stage, @NotNull Consumer<Object> consumer) {
+            Consumer<Object>[] consumers = stage.consumers;
+            int index = indexOf(consumers, consumer);
+            if (index < 0) {
+                return;
+            }
+
+            stage.consumers = remove(consumers, index);
+
+            Stage child = stage;
+            while (child.parent != null && child.linked && child.isEmpty()) {
+                Stage parent = child.parent;
+                parent.children = remove(parent.children, indexOf(parent.children, child));
+                child.linked = false;
+                child = parent;
+            }
+
+            if (isEmpty() && subscription != null) {
+                subscription.cancel();
+                subscription = null;
+            }
+        }
+
+        private static int indexOf(Object @NotNull [] array, @NotNull Object element) {
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] == element) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        private static <E> E @NotNull [] remove(E @NotNull [] array, int index) {
+            E[] next = Arrays.copyOf(array, array.length - 1);
+            System.arraycopy(array, index + 1, next, index, next.length - index);
+            return next;
+        }
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package dev.tommyjs.jobserve.observer;
+
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A low level listener which can be attached directly to a key of an {@link ObserverEmitter} with
+ * {@link ObserverEmitter#attach}. Unlike subscriptions, attaching and detaching a probe does not
+ * allocate once the key has been used, so probes are suited to short-lived, recycled listeners
+ * such as pooled watchers.
+ * <p>
+ * Probes are called after all subscribers of every emission on their {@link ObserverKey},
+ * including emissions which have been cancelled.
+ */
+@FunctionalInterface
+public interface EmissionProbe {
+
+    /**
+     * Called upon every emission on the key this probe is attached to.
+     * @param value emission value
+     */
+    void onEmission(@Nullable Object value);
+
+}
@@ -0,0 +1,91 @@
+package dev.tommyjs.jobserve.observer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single-use rendezvous between one waiting thread and any number of completing threads. The
+ * waiter parks with {@link LockSupport}, never inside a monitor, so waiting on a virtual thread
+ * unmounts it rather than pinning its carrier.
+ */
+public final class EmissionWaiter {
+
+    private static final Object PENDING = new Object();
+    private static final VarHandle RESULT;
+
+    static {
+        try {
+            RESULT = MethodHandles.lookup().findVarHandle(EmissionWaiter.class, "result", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final @NotNull Thread thread;
+    private volatile @Nullable Object result = PENDING;
+
+    /**
+     * Creates a new waiter for the current thread.
+     */
+    public EmissionWaiter() {
+        this.thread = Thread.currentThread();
+    }
+
+    public boolean isDone() {
+        return result != PENDING;
+    }
+
+    /**
+     * Completes this waiter with a value and wakes the waiting thread. Only the first completion
+     * takes effect.
+     * @param value result value
+     * @return whether this call completed the waiter
+     */
+    public boolean complete(@Nullable Object value) {
+        if (RESULT.compareAndSet(this, PENDING, value)) {
+            LockSupport.unpark(thread);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Waits on the owning thread until this waiter is completed.
+     * @param timeout maximum duration to wait
+     * @return result value
+     * @throws InterruptedException if the waiting thread is interrupted
+     * @throws TimeoutException if the waiter was not completed in time
+     */
+    public @Nullable Object await(@NotNull Duration timeout) throws InterruptedException, TimeoutException {
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("Waiter can only be awaited by the thread that created it");
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            Object result = this.result;
+            if (result != PENDING) {
+                return result;
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException("Timed out waiting for emission");
+            }
+
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+}
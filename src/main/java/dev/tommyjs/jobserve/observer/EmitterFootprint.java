@@ -0,0 +1,27 @@
+package dev.tommyjs.jobserve.observer;
+
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Estimated heap usage of an {@link ObserverEmitter}, from {@link ObserverEmitter#footprint()}.
+ * Subscriber callbacks themselves are not included, as they are usually shared or owned by other
+ * objects.
+ * @param estimatedBytes estimated bytes retained by the emitter and its subscriptions
+ * @param subscribers number of subscribers of each key with at least one subscriber or probe
+ * @param probes number of attached probes across all keys
+ */
+public record EmitterFootprint(long estimatedBytes, @NotNull Map<ObserverKey<?>, Integer> subscribers, int probes) {
+
+    public int subscriberCount() {
+        int count = 0;
+        for (int subscribers : subscribers.values()) {
+            count += subscribers;
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,225 @@
+package dev.tommyjs.jobserve.observer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable configuration for {@link ObserverEmitter} instances created with
+ * {@link ObserverEmitter#create(EmitterOptions)}. Every modifier returns a new options instance.
+ */
+public final class EmitterOptions {
+
+    private static final EmitterOptions DEFAULTS = new EmitterOptions(0, false, null, 0, 0, 0, null, 0, 0);
+
+    private final int compileThreshold;
+    private final boolean isolateErrors;
+    private final @Nullable SubscriberErrorHandler errorHandler;
+    private final int breakerThreshold;
+    private final long breakerCooldownNanos;
+    private final int parallelThreshold;
+    private final @Nullable ForkJoinPool parallelPool;
+    private final int cascadeDepth;
+    private final int cascadeBudget;
+
+    private EmitterOptions(int compileThreshold, boolean isolateErrors, @Nullable SubscriberErrorHandler errorHandler,
+                           int breakerThreshold, long breakerCooldownNanos, int parallelThreshold, @Nullable ForkJoinPool parallelPool,
+                           int cascadeDepth, int cascadeBudget) {
+        this.compileThreshold = compileThreshold;
+        this.isolateErrors = isolateErrors;
+        this.errorHandler = errorHandler;
+        this.breakerThreshold = breakerThreshold;
+        this.breakerCooldownNanos = breakerCooldownNanos;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelPool = parallelPool;
+        this.cascadeDepth = cascadeDepth;
+        this.cascadeBudget = cascadeBudget;
+    }
+
+    /**
+     * Returns the number of consecutive emissions a subscriber set must receive, without any
+     * subscription changes, before a direct dispatcher is compiled for it.
+     * @return compile threshold, or 0 if dispatch compilation is disabled
+     */
+    public int getCompileThreshold() {
+        return compileThreshold;
+    }
+
+    public boolean isIsolateErrors() {
+        return isolateErrors;
+    }
+
+    public @Nullable SubscriberErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    /**
+     * Returns the number of consecutive failures after which a subscriber is suspended.
+     * @return breaker threshold, or 0 if circuit breaking is disabled
+     */
+    public int getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public long getBreakerCooldownNanos() {
+        return breakerCooldownNanos;
+    }
+
+    /**
+     * Returns the number of subscribers a key must have before emissions fan out in parallel.
+     * @return parallel threshold, or 0 if parallel fan-out is disabled
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public @Nullable ForkJoinPool getParallelPool() {
+        return parallelPool;
+    }
+
+    /**
+     * Returns the maximum depth of an emission cascade started by an emitter with these options.
+     * @return cascade depth, or 0 if emissions do not cascade
+     */
+    public int getCascadeDepth() {
+        return cascadeDepth;
+    }
+
+    public int getCascadeBudget() {
+        return cascadeBudget;
+    }
+
+    /**
+     * Enables dispatch compilation. Once the subscribers of a key have not changed for the given
+     * number of emissions, they are compiled into a single {@link java.lang.invoke.MethodHandle}
+     * chain which calls every subscriber directly. Any subscribe or cancel discards the compiled
+     * dispatcher, and emissions fall back to the generic loop until the set is stable again.
+     * <p>
+     * Only subscribers which do not take an {@link EmissionContext} are compiled, and compilation
+     * is skipped entirely while errors are isolated.
+     * @param stableEmissions number of emissions without changes before compiling, or 0 to disable
+     * @return new options
+     */
+    public @NotNull EmitterOptions compileDispatch(int stableEmissions) {
+        if (stableEmissions < 0) {
+            throw new IllegalArgumentException("Compile threshold must not be negative");
+        }
+
+        return new EmitterOptions(stableEmissions, isolateErrors, errorHandler, breakerThreshold, breakerCooldownNanos, parallelThreshold, parallelPool, cascadeDepth, cascadeBudget);
+    }
+
+    /**
+     * Isolates subscriber errors. An exception thrown by a subscriber no longer aborts the emission,
+     * but is passed to the error handler, and the remaining subscribers are still called. Failure
+     * statistics are tracked per subscription, see {@link ObserverSub#getStats()}.
+     * @param isolateErrors whether to isolate subscriber errors
+     * @return new options
+     */
+    public @NotNull EmitterOptions isolateErrors(boolean isolateErrors) {
+        return new EmitterOptions(compileThreshold, isolateErrors, errorHandler, breakerThreshold, breakerCooldownNanos, parallelThreshold, parallelPool, cascadeDepth, cascadeBudget);
+    }
+
+    /**
+     * Isolates subscriber errors and routes them to the given handler. Without a handler, isolated
+     * errors are passed to the uncaught exception handler of the emitting thread.
+     * @param errorHandler handler for subscriber errors
+     * @return new options
+     * @see #isolateErrors(boolean)
+     */
+    public @NotNull EmitterOptions errorHandler(@NotNull SubscriberErrorHandler errorHandler) {
+        return new EmitterOptions(compileThreshold, true, errorHandler, breakerThreshold, breakerCooldownNanos, parallelThreshold, parallelPool, cascadeDepth, cascadeBudget);
+    }
+
+    /**
+     * Isolates subscriber errors and enables a circuit breaker per subscription. Once a subscriber
+     * has failed the given number of times in a row, it is suspended and skipped by all emissions
+     * for the cooldown. The first emission after the cooldown is let through as a trial: if the
+     * subscriber fails again it is immediately suspended again, otherwise the breaker closes.
+     * @param failureThreshold consecutive failures before suspending a subscriber
+     * @param cooldown duration of a suspension
+     * @return new options
+     * @see #isolateErrors(boolean)
+     */
+    public @NotNull EmitterOptions circuitBreaker(int failureThreshold, @NotNull Duration cooldown) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+
+        if (cooldown.isNegative() || cooldown.isZero()) {
+            throw new IllegalArgumentException("Cooldown must be positive");
+        }
+
+        return new EmitterOptions(compileThreshold, true, errorHandler, failureThreshold, cooldown.toNanos(), parallelThreshold, parallelPool, cascadeDepth, cascadeBudget);
+    }
+
+    /**
+     * Enables parallel fan-out on the common {@link ForkJoinPool}.
+     * @param threshold minimum number of subscribers of a key, or 0 to disable
+     * @return new options
+     * @see #parallelFanOut(int, ForkJoinPool)
+     */
+    public @NotNull EmitterOptions parallelFanOut(int threshold) {
+        return parallelFanOut(threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Enables parallel fan-out. Once a key has at least the given number of subscribers, each
+     * {@link ObserverPriority} phase of an emission is split across the given pool, and the
+     * emitting thread waits for the phase to complete before starting the next one. Phase order
+     * and cancellation are preserved, and since an emission only returns once every subscriber has
+     * been called, each subscriber still receives the emissions of one thread in order. Subscribers
+     * in the same phase may however run concurrently with each other, so they must be thread safe.
+     * <p>
+     * Dispatch compilation is skipped for keys which fan out in parallel.
+     * @param threshold minimum number of subscribers of a key, or 0 to disable
+     * @param pool pool to run subscribers on
+     * @return new options
+     */
+    public @NotNull EmitterOptions parallelFanOut(int threshold, @NotNull ForkJoinPool pool) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Parallel threshold must not be negative");
+        }
+
+        return new EmitterOptions(compileThreshold, isolateErrors, errorHandler, breakerThreshold, breakerCooldownNanos, threshold, pool, cascadeDepth, cascadeBudget);
+    }
+
+    /**
+     * Enables cascading emissions. An emission made by a subscriber, on any cascading emitter, is
+     * queued on the current thread rather than called recursively, and queued emissions are
+     * called breadth first once the outermost emission has called its subscribers. Stack depth
+     * therefore stays constant however far a cascade of property updates spreads, although each
+     * nested emission is only delivered after the subscriber making it has returned, and its
+     * {@link ObserverEmitter#emitCancellable} always reports it as not cancelled.
+     * <p>
+     * If an emission would be nested deeper than the given depth below the outermost emission, or
+     * the cascade would exceed the given total number of emissions, the remaining cascade is
+     * discarded and the outermost emission throws a {@link CascadeException} describing the path
+     * which led to the rejected emission. Limits are taken from the emitter which started the
+     * cascade.
+     * @param maxDepth maximum nesting depth of an emission, or 0 to disable
+     * @param budget maximum number of emissions in one cascade
+     * @return new options
+     */
+    public @NotNull EmitterOptions cascade(int maxDepth, int budget) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Cascade depth must not be negative");
+        }
+
+        if (maxDepth > 0 && budget <= 0) {
+            throw new IllegalArgumentException("Cascade budget must be positive");
+        }
+
+        return new EmitterOptions(compileThreshold, isolateErrors, errorHandler, breakerThreshold, breakerCooldownNanos, parallelThreshold, parallelPool, maxDepth, budget);
+    }
+
+    /**
+     * Returns the default options, matching the behaviour of {@link ObserverEmitter#create()}.
+     * @return default options
+     */
+    public static @NotNull EmitterOptions defaults() {
+        return DEFAULTS;
+    }
+
+}
@@ -0,0 +1,26 @@
+package dev.tommyjs.jobserve.observer;
+
+/**
+ * Determines how failing subscribers affect the result of an asynchronous emission started with
+ * {@link ObserverEmitter#emitAsync(dev.tommyjs.jobserve.observer.key.ObserverKey, Object, java.util.concurrent.Executor, FailurePolicy)}.
+ */
+public enum FailurePolicy {
+
+    /**
+     * The emission completes exceptionally as soon as any subscriber fails. Subscribers which have
+     * not started yet are skipped, but subscribers already running are not interrupted.
+     */
+    FAIL_FAST,
+
+    /**
+     * All subscribers are called, and the emission then completes exceptionally with every failure
+     * if any subscriber failed.
+     */
+    COLLECT,
+
+    /**
+     * All subscribers are called, and the emission always completes normally.
+     */
+    IGNORE
+
+}
@@ -4,7 +4,13 @@ import dev.tommyjs.jobserve.observer.key.ObserverKey;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * An {@link Observable} object can be observed, which essentially means "events" can be subscribed
@@ -49,6 +55,48 @@ public interface Observable {
         return getEmitter().observe(key, consumer);
     }
 
+    /**
+     * Subscribes to all emissions on a specified {@link ObserverKey}, in a given {@link ObserverPriority}
+     * phase. Subscribers are called in phase order, and in subscription order within a phase.
+     * @param key observer key
+     * @param priority phase in which to call the consumer
+     * @param consumer callback to be called upon emission
+     * @return cancellable subscription
+     * @param <T> emission argument type
+     * @see #observe(ObserverKey, Consumer)
+     */
+    default <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull Consumer<T> consumer) {
+        return getEmitter().observe(key, priority, consumer);
+    }
+
+    /**
+     * Subscribes to all emissions on a specified {@link ObserverKey}, in a given {@link ObserverPriority}
+     * phase. The consumer is additionally given the {@link EmissionContext} of each emission, which
+     * can be used to cancel the emission for all subscribers in later phases.
+     * @param key observer key
+     * @param priority phase in which to call the consumer
+     * @param consumer callback to be called upon emission
+     * @return cancellable subscription
+     * @param <T> emission argument type
+     * @see #observe(ObserverKey, Consumer)
+     */
+    default <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull BiConsumer<T, EmissionContext> consumer) {
+        return getEmitter().observe(key, priority, consumer);
+    }
+
+    /**
+     * Starts an {@link EmissionPipeline} on a specified {@link ObserverKey}, to which operators can
+     * be chained before subscribing. Every subscriber derived from the returned pipeline shares a
+     * single subscription on the key, but separate calls start separate pipelines, which share
+     * nothing.
+     * @param key observer key
+     * @return pipeline passing every emission on the key
+     * @param <T> emission argument type
+     */
+    default <T> @NotNull EmissionPipeline<T> on(@NotNull ObserverKey<T> key) {
+        return EmissionPipeline.create(this, key);
+    }
+
     /**
      * Emits an event on a specified {@link ObserverKey}. This will immediately call all current
      * subscribers, with the specified value, on the current thread.
@@ -59,4 +107,78 @@ public interface Observable {
         getEmitter().emit(key, value);
     }
 
+    /**
+     * Emits an event on a specified {@link ObserverKey}, and reports whether the emission was
+     * cancelled by a subscriber. Once cancelled, only {@link ObserverPriority#MONITOR} subscribers
+     * will be called.
+     * @param key observer key
+     * @param value emission value
+     * @return whether the emission was cancelled
+     */
+    default <T> boolean emitCancellable(@NotNull ObserverKey<T> key, @Nullable T value) {
+        return getEmitter().emitCancellable(key, value);
+    }
+
+    /**
+     * Emits an event on a specified {@link ObserverKey}, calling subscribers asynchronously on the
+     * common {@link java.util.concurrent.ForkJoinPool}, and collecting all failures.
+     * @param key observer key
+     * @param value emission value
+     * @return future completing once the emission has finished
+     * @see ObserverEmitter#emitAsync(ObserverKey, Object, Executor, FailurePolicy)
+     */
+    default <T> @NotNull CompletableFuture<Void> emitAsync(@NotNull ObserverKey<T> key, @Nullable T value) {
+        return getEmitter().emitAsync(key, value);
+    }
+
+    /**
+     * Emits an event on a specified {@link ObserverKey}, calling subscribers asynchronously on an
+     * executor with a given failure policy.
+     * @param key observer key
+     * @param value emission value
+     * @param executor executor to run subscribers on
+     * @param policy how subscriber failures affect the result
+     * @return future completing once the emission has finished
+     * @see ObserverEmitter#emitAsync(ObserverKey, Object, Executor, FailurePolicy)
+     */
+    default <T> @NotNull CompletableFuture<Void> emitAsync(@NotNull ObserverKey<T> key, @Nullable T value, @NotNull Executor executor, @NotNull FailurePolicy policy) {
+        return getEmitter().emitAsync(key, value, executor, policy);
+    }
+
+    /**
+     * Blocks the current thread until there is an emission on a specified {@link ObserverKey} which
+     * matches a predicate, and returns the emitted value. The predicate is evaluated on the emitting
+     * thread, and only emissions starting after this method is called are considered.
+     * <p>
+     * Waiters are attached with {@link ObserverEmitter#attachWaiter} rather than as subscriptions,
+     * so they never change the subscriber chain walked by emissions. On the default emitter, the
+     * waiters of a key share a single probe, so waiting and giving up are O(1) however many threads
+     * wait. The waiting thread parks without holding any monitor, which makes this method safe to
+     * call from virtual threads. It must not be called on the owning thread of a confined emitter,
+     * as no other thread could emit.
+     * @param key observer key
+     * @param predicate predicate an emission must match
+     * @param timeout maximum duration to wait
+     * @return matching emission value
+     * @param <T> emission argument type
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws TimeoutException if there was no matching emission in time
+     */
+    @SuppressWarnings("unchecked")
+    default <T> @Nullable T await(@NotNull ObserverKey<T> key, @NotNull Predicate<T> predicate, @NotNull Duration timeout) throws InterruptedException, TimeoutException {
+        EmissionWaiter waiter = new EmissionWaiter();
+        EmissionProbe probe = value -> {
+            if (!waiter.isDone() && predicate.test((T) value)) {
+                waiter.complete(value);
+            }
+        };
+
+        ObserverSub subscription = getEmitter().attachWaiter(key, waiter, probe);
+        try {
+            return (T) waiter.await(timeout);
+        } finally {
+            subscription.cancel();
+        }
+    }
+
 }
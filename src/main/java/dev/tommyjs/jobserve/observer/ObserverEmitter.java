@@ -1,10 +1,17 @@
 package dev.tommyjs.jobserve.observer;
 
+import dev.tommyjs.jobserve.observer.impl.ConfinedObserverEmitterImpl;
 import dev.tommyjs.jobserve.observer.impl.ObserverEmitterImpl;
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public interface ObserverEmitter {
@@ -28,6 +35,55 @@ public interface ObserverEmitter {
      */
     <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull Consumer<T> consumer);
 
+    /**
+     * Subscribes to all emissions on a specified {@link ObserverKey}, in a given {@link ObserverPriority}
+     * phase. Subscribers are called in phase order, and in subscription order within a phase.
+     * <p>
+     * Emitters which do not support phases ignore the priority, and subscribe the consumer with
+     * {@link #observe(ObserverKey, Consumer)}, which is what the default implementation does.
+     * @param key observer key
+     * @param priority phase in which to call the consumer
+     * @param consumer callback to be called upon emission
+     * @return cancellable subscription
+     * @param <T> emission argument type
+     * @see #observe(ObserverKey, Consumer)
+     */
+    default <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull Consumer<T> consumer) {
+        return observe(key, consumer);
+    }
+
+    /**
+     * Subscribes to all emissions on a specified {@link ObserverKey}, in a given {@link ObserverPriority}
+     * phase. The consumer is additionally given the {@link EmissionContext} of each emission, which
+     * can be used to cancel the emission for all subscribers in later phases.
+     * <p>
+     * Emitters which cannot cancel emissions give each call a context of its own, so cancelling it
+     * has no effect on other subscribers, which is what the default implementation does.
+     * @param key observer key
+     * @param priority phase in which to call the consumer
+     * @param consumer callback to be called upon emission
+     * @return cancellable subscription
+     * @param <T> emission argument type
+     * @see #observe(ObserverKey, Consumer)
+     */
+    default <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull BiConsumer<T, EmissionContext> consumer) {
+        return observe(key, priority, value -> consumer.accept(value, new EmissionContext() {
+
+            private boolean cancelled;
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+
+        }));
+    }
+
     /**
      * Emits an event on a specified {@link ObserverKey}. This will immediately call all current
      * subscribers, with the specified value, on the current thread.
@@ -36,6 +92,139 @@ public interface ObserverEmitter {
      */
     <T> void emit(@NotNull ObserverKey<T> key, @Nullable T value);
 
+    /**
+     * Emits an event on a specified {@link ObserverKey}, and reports whether the emission was
+     * cancelled by a subscriber. Once cancelled, only {@link ObserverPriority#MONITOR} subscribers
+     * will be called.
+     * <p>
+     * Emitters which cannot cancel emissions emit with {@link #emit(ObserverKey, Object)} and
+     * report no cancellation, which is what the default implementation does.
+     * @param key observer key
+     * @param value emission value
+     * @return whether the emission was cancelled
+     */
+    default <T> boolean emitCancellable(@NotNull ObserverKey<T> key, @Nullable T value) {
+        emit(key, value);
+        return false;
+    }
+
+    /**
+     * Emits an event on a specified {@link ObserverKey}, calling every subscriber as a separate task
+     * on an executor. Subscribers in the same {@link ObserverPriority} phase may run concurrently,
+     * but each phase only starts once the previous phase has completed, so cancellation through an
+     * {@link EmissionContext} is still honoured between phases.
+     * <p>
+     * The returned future completes once every subscriber has been called, or according to the
+     * given {@link FailurePolicy} if any subscriber fails, in which case it is completed
+     * exceptionally with an {@link EmissionException}.
+     * <p>
+     * Emitters which cannot fan out emit with {@link #emit(ObserverKey, Object)} in a single task on
+     * the executor, which is what the default implementation does. Subscribers then never run
+     * concurrently, and a failure escaping the emission fails it as a whole.
+     * @param key observer key
+     * @param value emission value
+     * @param executor executor to run subscribers on
+     * @param policy how subscriber failures affect the result
+     * @return future completing once the emission has finished
+     */
+    default <T> @NotNull CompletableFuture<Void> emitAsync(@NotNull ObserverKey<T> key, @Nullable T value, @NotNull Executor executor, @NotNull FailurePolicy policy) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                emit(key, value);
+                future.complete(null);
+            } catch (Throwable e) {
+                if (policy == FailurePolicy.IGNORE) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(new EmissionException(List.of(e)));
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Emits an event on a specified {@link ObserverKey}, calling every subscriber on the common
+     * {@link ForkJoinPool}, and collecting all failures.
+     * @param key observer key
+     * @param value emission value
+     * @return future completing once the emission has finished
+     * @see #emitAsync(ObserverKey, Object, Executor, FailurePolicy)
+     */
+    default <T> @NotNull CompletableFuture<Void> emitAsync(@NotNull ObserverKey<T> key, @Nullable T value) {
+        return emitAsync(key, value, ForkJoinPool.commonPool(), FailurePolicy.COLLECT);
+    }
+
+    /**
+     * Attaches an {@link EmissionProbe} to a specified {@link ObserverKey}. The probe will be called
+     * upon every emission on the key until it is detached. Once the key has been used, attaching and
+     * detaching probes does not allocate.
+     * <p>
+     * Emitters which do not support probes subscribe the probe with
+     * {@link #observe(ObserverKey, Consumer)} instead, which is what the default implementation
+     * does. Such a probe is called in subscription order, allocates on every attachment, and must
+     * be detached for the emitter to be collected.
+     * @param key observer key
+     * @param probe probe to attach
+     */
+    default void attach(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        AttachedProbes.attach(this, key, probe);
+    }
+
+    /**
+     * Detaches an {@link EmissionProbe} previously attached to a specified {@link ObserverKey}. It
+     * is guaranteed that following execution of this method, the probe will not be called by any
+     * emission which starts afterwards.
+     * @param key observer key
+     * @param probe probe to detach
+     */
+    default void detach(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        AttachedProbes.detach(this, key, probe);
+    }
+
+    /**
+     * Attaches an {@link EmissionProbe} on behalf of an {@link EmissionWaiter}. The probe will be
+     * called upon every emission on the key until the waiter is done or the returned subscription
+     * is cancelled, which must happen once the waiter is no longer awaited. Emitters may keep the
+     * waiters of a key apart from its probes, so that attaching and cancelling a waiter does not
+     * depend on how many others are waiting.
+     * @param key observer key
+     * @param waiter waiter the probe completes
+     * @param probe probe to attach
+     * @return subscription detaching the probe
+     */
+    default @NotNull ObserverSub attachWaiter(@NotNull ObserverKey<?> key, @NotNull EmissionWaiter waiter, @NotNull EmissionProbe probe) {
+        attach(key, probe);
+        return () -> detach(key, probe);
+    }
+
+    /**
+     * Checks whether a key currently has any subscriber or probe, which lets callers skip
+     * building emission values nobody would receive.
+     * <p>
+     * Emitters which cannot tell report every key as observed, which is what the default
+     * implementation does, so callers always build their values.
+     * @param key observer key
+     * @return whether the key is observed
+     */
+    default boolean isObserved(@NotNull ObserverKey<?> key) {
+        return true;
+    }
+
+    /**
+     * Estimates the heap usage of this emitter, and counts the subscribers of each key. The
+     * report is a snapshot, and may be inconsistent with concurrent subscription changes.
+     * <p>
+     * Emitters which cannot inspect their subscriptions report an empty footprint, which is what
+     * the default implementation does.
+     * @return emitter footprint
+     */
+    default @NotNull EmitterFootprint footprint() {
+        return new EmitterFootprint(0, Map.of(), 0);
+    }
+
     /**
      * Creates a new default {@link ObserverEmitter} instance.
      * @return new observer emitter
@@ -44,4 +233,21 @@ public interface ObserverEmitter {
         return new ObserverEmitterImpl();
     }
 
+    /**
+     * Creates a new default {@link ObserverEmitter} instance with the specified options.
+     * @param options emitter options
+     * @return new observer emitter
+     */
+    static @NotNull ObserverEmitter create(@NotNull EmitterOptions options) {
+        return new ObserverEmitterImpl(options);
+    }
+
+    /**
+     * Creates a new {@link ConfinedObserverEmitter} instance, owned by the current thread.
+     * @return new confined observer emitter
+     */
+    static @NotNull ConfinedObserverEmitter createConfined() {
+        return new ConfinedObserverEmitterImpl();
+    }
+
 }
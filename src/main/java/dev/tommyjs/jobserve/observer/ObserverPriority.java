@@ -0,0 +1,30 @@
+package dev.tommyjs.jobserve.observer;
+
+/**
+ * Represents the phase in which a subscriber is called during an emission. Subscribers are called
+ * in the declared order of these phases, and in subscription order within the same phase.
+ */
+public enum ObserverPriority {
+
+    /**
+     * Called before all other subscribers. Suitable for validating or vetoing an emission.
+     */
+    PRE,
+
+    /**
+     * Default phase for subscribers.
+     */
+    NORMAL,
+
+    /**
+     * Called after all normal subscribers, provided the emission has not been cancelled.
+     */
+    POST,
+
+    /**
+     * Called last, even if the emission has been cancelled. Monitor subscribers should only
+     * observe the outcome of an emission and should not attempt to cancel it.
+     */
+    MONITOR
+
+}
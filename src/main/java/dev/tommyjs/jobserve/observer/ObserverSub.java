@@ -1,6 +1,8 @@
 package dev.tommyjs.jobserve.observer;
 
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents the result of subscribing to a {@link ObserverKey} on a {@link Observable} object.
@@ -17,4 +19,25 @@ public interface ObserverSub {
      */
     void cancel();
 
+    /**
+     * Returns the failure statistics of this subscription. Statistics are only tracked by emitters
+     * which isolate subscriber errors.
+     * @return subscriber statistics, or null if not tracked
+     * @see EmitterOptions#isolateErrors(boolean)
+     */
+    default @Nullable SubscriberStats getStats() {
+        return null;
+    }
+
+    /**
+     * Combines several subscriptions into one, which cancels all of them. Its statistics sum the
+     * failures and trips of the parts, report the longest run of consecutive failures, and are
+     * suspended while any part is suspended.
+     * @param subs subscriptions to combine
+     * @return composite subscription
+     */
+    static @NotNull ObserverSub composite(@NotNull ObserverSub @NotNull ... subs) {
+        return new CompositeObserverSub(subs.clone());
+    }
+
 }
@@ -0,0 +1,20 @@
+package dev.tommyjs.jobserve.observer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives exceptions thrown by subscribers of an emitter which isolates subscriber errors.
+ * @see EmitterOptions#errorHandler(SubscriberErrorHandler)
+ */
+@FunctionalInterface
+public interface SubscriberErrorHandler {
+
+    /**
+     * Called on the emitting thread after a subscriber has thrown. Any exception thrown by this
+     * method propagates to the emitter.
+     * @param subscription subscription of the failing subscriber
+     * @param error thrown exception
+     */
+    void onError(@NotNull ObserverSub subscription, @NotNull Throwable error);
+
+}
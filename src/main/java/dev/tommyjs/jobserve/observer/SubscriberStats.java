@@ -0,0 +1,34 @@
+package dev.tommyjs.jobserve.observer;
+
+/**
+ * Failure statistics of a single subscription, available through {@link ObserverSub#getStats()}
+ * when the emitter isolates subscriber errors.
+ */
+public interface SubscriberStats {
+
+    /**
+     * Returns the total number of times the subscriber has thrown.
+     * @return failure count
+     */
+    long getFailures();
+
+    /**
+     * Returns the number of times the subscriber has thrown since it last completed normally.
+     * @return consecutive failure count
+     */
+    int getConsecutiveFailures();
+
+    /**
+     * Returns the number of times the circuit breaker of the subscriber has tripped.
+     * @return trip count
+     */
+    long getTrips();
+
+    /**
+     * Checks whether the subscriber is currently suspended by its circuit breaker, in which case
+     * it is skipped by all emissions until the cooldown has elapsed.
+     * @return whether the subscriber is suspended
+     */
+    boolean isSuspended();
+
+}
@@ -0,0 +1,142 @@
+package dev.tommyjs.jobserve.observer.impl;
+
+import dev.tommyjs.jobserve.observer.CascadeException;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per thread queue of emissions made by subscribers of cascading emitters. The first emission on
+ * a thread calls its subscribers directly, and any emission they make on a cascading emitter is
+ * queued rather than called recursively. Once the first emission returns, queued emissions are
+ * called in order, so a cascade is processed breadth first with a constant stack depth.
+ * <p>
+ * Each queued emission remembers the emission it was made from, which bounds the depth of the
+ * cascade and lets a rejected emission report the path which led to it. The depth and budget
+ * limits are taken from the emitter which started the cascade.
+ */
+final class CascadeQueue {
+
+    private static final ThreadLocal<CascadeQueue> QUEUE = ThreadLocal.withInitial(CascadeQueue::new);
+
+    private final Pending root = new Pending();
+    private @Nullable Pending current;
+    private @Nullable Pending head;
+    private @Nullable Pending tail;
+    private @Nullable CascadeException failure;
+    private int maxDepth;
+    private int budget;
+    private int emitted;
+
+    private CascadeQueue() {
+
+    }
+
+    /**
+     * Emits on a set, either directly if no cascade is in progress on this thread, or by queueing
+     * the emission behind the cascade in progress.
+     * @return whether the emission was cancelled, always false if queued
+     * @throws CascadeException if a nested emission exceeded the cascade limits
+     */
+    static boolean emit(@NotNull ObserverSet set, @NotNull ObserverKey<?> key, @Nullable Object value, int maxDepth, int budget) {
+        CascadeQueue queue = QUEUE.get();
+        if (queue.current != null) {
+            queue.enqueue(set, key, value);
+            return false;
+        }
+
+        return queue.run(set, key, value, maxDepth, budget);
+    }
+
+    private boolean run(@NotNull ObserverSet set, @NotNull ObserverKey<?> key, @Nullable Object value, int maxDepth, int budget) {
+        this.maxDepth = maxDepth;
+        this.budget = budget;
+        this.emitted = 1;
+        root.key = key;
+        current = root;
+
+        try {
+            boolean cancelled = set.call(value);
+            Pending next;
+            while (failure == null && (next = head) != null) {
+                head = next.next;
+                if (head == null) {
+                    tail = null;
+                }
+
+                current = next;
+                next.set.call(next.value);
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+
+            return cancelled;
+        } finally {
+            current = null;
+            head = null;
+            tail = null;
+            failure = null;
+            root.key = null;
+        }
+    }
+
+    private void enqueue(@NotNull ObserverSet set, @NotNull ObserverKey<?> key, @Nullable Object value) {
+        if (failure != null) {
+            return;
+        }
+
+        Pending parent = current;
+        int depth = parent.depth + 1;
+        if (depth > maxDepth) {
+            fail("Emission cascade exceeded depth " + maxDepth, parent, key);
+        } else if (++emitted > budget) {
+            fail("Emission cascade exceeded budget of " + budget + " emissions", parent, key);
+        } else {
+            Pending pending = new Pending();
+            pending.set = set;
+            pending.key = key;
+            pending.value = value;
+            pending.parent = parent;
+            pending.depth = depth;
+
+            if (tail == null) {
+                head = pending;
+            } else {
+                tail.next = pending;
+            }
+
+            tail = pending;
+        }
+    }
+
+    private void fail(@NotNull String reason, @NotNull Pending parent, @NotNull ObserverKey<?> key) {
+        List<ObserverKey<?>> path = new ArrayList<>();
+        path.add(key);
+        for (Pending pending = parent; pending != null; pending = pending.parent) {
+            path.add(pending.key);
+        }
+
+        Collections.reverse(path);
+        failure = new CascadeException(reason, path);
+        head = null;
+        tail = null;
+    }
+
+    private static final class Pending {
+
+        private ObserverSet set;
+        private ObserverKey<?> key;
+        private Object value;
+        private Pending parent;
+        private Pending next;
+        private int depth;
+
+    }
+
+}
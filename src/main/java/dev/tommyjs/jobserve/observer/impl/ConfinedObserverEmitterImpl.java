@@ -0,0 +1,360 @@
+package dev.tommyjs.jobserve.observer.impl;
+
+import dev.tommyjs.jobserve.observer.ConfinedObserverEmitter;
+import dev.tommyjs.jobserve.observer.EmissionContext;
+import dev.tommyjs.jobserve.observer.EmissionProbe;
+import dev.tommyjs.jobserve.observer.EmitterFootprint;
+import dev.tommyjs.jobserve.observer.FailurePolicy;
+import dev.tommyjs.jobserve.observer.ObserverPriority;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Thread confined {@link dev.tommyjs.jobserve.observer.ObserverEmitter} implementation. Follows the
+ * same ordering and cancellation semantics as {@link ObserverEmitterImpl}, but keeps each key's
+ * subscribers in a plain copy-on-write array, so a subscriber cancelling itself or subscribing
+ * others mid-emission never affects the emission in progress.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class ConfinedObserverEmitterImpl implements ConfinedObserverEmitter {
+
+    private static final VarHandle OWNER;
+
+    static {
+        try {
+            OWNER = MethodHandles.lookup().findVarHandle(ConfinedObserverEmitterImpl.class, "owner", Thread.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Map<ObserverKey, ConfinedSet> map;
+    private volatile @Nullable Thread owner;
+
+    public ConfinedObserverEmitterImpl() {
+        this.map = new HashMap<>();
+        this.owner = Thread.currentThread();
+    }
+
+    private boolean checkOwner() {
+        if (owner != Thread.currentThread()) {
+            throw new AssertionError("Confined emitter accessed by " + Thread.currentThread() + " while owned by " + owner);
+        }
+
+        return true;
+    }
+
+    @Override
+    public @Nullable Thread getOwner() {
+        return owner;
+    }
+
+    @Override
+    public void release() {
+        if (!OWNER.compareAndSet(this, Thread.currentThread(), null)) {
+            throw new IllegalStateException("Confined emitter is not owned by the current thread");
+        }
+    }
+
+    @Override
+    public void acquire() {
+        Thread current = Thread.currentThread();
+        if (owner != current && !OWNER.compareAndSet(this, null, current)) {
+            throw new IllegalStateException("Confined emitter is owned by another thread");
+        }
+    }
+
+    @Override
+    public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull Consumer<T> consumer) {
+        return observe(key, ObserverPriority.NORMAL, consumer);
+    }
+
+    @Override
+    public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull Consumer<T> consumer) {
+        assert checkOwner();
+        return getSet(key).add(new SubImpl(priority, (Consumer) consumer, null));
+    }
+
+    @Override
+    public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull BiConsumer<T, EmissionContext> consumer) {
+        assert checkOwner();
+        return getSet(key).add(new SubImpl(priority, null, (BiConsumer) consumer));
+    }
+
+    @Override
+    public void attach(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        assert checkOwner();
+        getSet(key).attach(probe);
+    }
+
+    @Override
+    public void detach(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        assert checkOwner();
+        ConfinedSet set = map.get(key);
+        if (set != null) {
+            set.detach(probe);
+        }
+    }
+
+    @Override
+    public boolean isObserved(@NotNull ObserverKey<?> key) {
+        assert checkOwner();
+        ConfinedSet set = map.get(key);
+        return set != null && (set.subscriptions.length != 0 || set.probeCount != 0);
+    }
+
+    @Override
+    public @NotNull EmitterFootprint footprint() {
+        assert checkOwner();
+        long bytes = MemoryEstimates.object(2, 0) + MemoryEstimates.hashMap(map.size());
+        Map<ObserverKey<?>, Integer> subscribers = new HashMap<>();
+        int probes = 0;
+
+        for (Map.Entry<ObserverKey, ConfinedSet> entry : map.entrySet()) {
+            ConfinedSet set = entry.getValue();
+            bytes += MemoryEstimates.object(3, 9) + MemoryEstimates.array(set.subscriptions.length)
+                + set.subscriptions.length * MemoryEstimates.object(5, 0) + MemoryEstimates.array(set.probes.length);
+            subscribers.put(entry.getKey(), set.subscriptions.length);
+            probes += set.probeCount;
+        }
+
+        return new EmitterFootprint(bytes, Collections.unmodifiableMap(subscribers), probes);
+    }
+
+    private @NotNull ConfinedSet getSet(@NotNull ObserverKey<?> key) {
+        ConfinedSet set = map.get(key);
+        if (set == null) {
+            set = new ConfinedSet(key);
+            map.put(key, set);
+        }
+
+        return set;
+    }
+
+    /**
+     * Drops a set once the removal of its last subscription leaves it without probes, so emitters
+     * seeing many transient keys do not accumulate empty sets. Detaching a probe never drops a set,
+     * so attaching probes to a key again does not allocate. Only the owning thread mutates the
+     * map, so no set can be added to while it is dropped.
+     */
+    private void reclaim(@NotNull ConfinedSet set) {
+        if (set.subscriptions.length == 0 && set.probeCount == 0) {
+            map.remove(set.key, set);
+        }
+    }
+
+    @Override
+    public <T> void emit(@NotNull ObserverKey<T> key, @Nullable T value) {
+        emitCancellable(key, value);
+    }
+
+    @Override
+    public <T> boolean emitCancellable(@NotNull ObserverKey<T> key, @Nullable T value) {
+        assert checkOwner();
+        ConfinedSet set = map.get(key);
+        return set != null && set.call(value);
+    }
+
+    /**
+     * Asynchronous emission would call subscribers outside the owning thread, so it is not
+     * supported by confined emitters.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<Void> emitAsync(@NotNull ObserverKey<T> key, @Nullable T value, @NotNull Executor executor, @NotNull FailurePolicy policy) {
+        throw new UnsupportedOperationException("Confined emitters cannot emit asynchronously");
+    }
+
+    private static final class ConfinedSet {
+
+        private static final SubImpl[] NO_SUBSCRIPTIONS = new SubImpl[0];
+        private static final EmissionProbe[] NO_PROBES = new EmissionProbe[0];
+
+        private final @NotNull ObserverKey<?> key;
+        private SubImpl @NotNull [] subscriptions = NO_SUBSCRIPTIONS;
+        private int monitorIndex;
+        private boolean contextual;
+
+        private EmissionProbe @NotNull [] probes = NO_PROBES;
+        private int probeCount;
+
+        private ConfinedSet(@NotNull ObserverKey<?> key) {
+            this.key = key;
+        }
+
+        private boolean call(@Nullable Object object) {
+            SubImpl[] subscriptions = this.subscriptions;
+            boolean cancelled = false;
+
+            if (!contextual) {
+                for (SubImpl subscription : subscriptions) {
+                    subscription.consumer.accept(object);
+                }
+            } else {
+                int monitorIndex = this.monitorIndex;
+                ContextImpl context = new ContextImpl();
+                int i = 0;
+                while (i < monitorIndex) {
+                    subscriptions[i++].call(object, context);
+                    if (context.cancelled) {
+                        i = monitorIndex;
+                    }
+                }
+
+                while (i < subscriptions.length) {
+                    subscriptions[i++].call(object, context);
+                }
+
+                cancelled = context.cancelled;
+            }
+
+            if (probeCount != 0) {
+                EmissionProbe[] probes = this.probes;
+                for (EmissionProbe probe : probes) {
+                    if (probe != null) {
+                        probe.onEmission(object);
+                    }
+                }
+            }
+
+            return cancelled;
+        }
+
+        private @NotNull ObserverSub add(@NotNull SubImpl subscription) {
+            SubImpl[] prev = subscriptions;
+            SubImpl[] next = new SubImpl[prev.length + 1];
+
+            int index = prev.length;
+            while (index > 0 && prev[index - 1].priority.compareTo(subscription.priority) > 0) {
+                index--;
+            }
+
+            System.arraycopy(prev, 0, next, 0, index);
+            next[index] = subscription;
+            System.arraycopy(prev, index, next, index + 1, prev.length - index);
+            update(next);
+
+            subscription.set = this;
+            return subscription;
+        }
+
+        private void remove(@NotNull SubImpl subscription) {
+            SubImpl[] prev = subscriptions;
+            for (int i = 0; i < prev.length; i++) {
+                if (prev[i] == subscription) {
+                    SubImpl[] next = new SubImpl[prev.length - 1];
+                    System.arraycopy(prev, 0, next, 0, i);
+                    System.arraycopy(prev, i + 1, next, i, next.length - i);
+                    update(next.length == 0 ? NO_SUBSCRIPTIONS : next);
+                    return;
+                }
+            }
+        }
+
+        private void update(SubImpl @NotNull [] subscriptions) {
+            int monitorIndex = subscriptions.length;
+            boolean contextual = false;
+            for (int i = subscriptions.length - 1; i >= 0; i--) {
+                if (subscriptions[i].priority == ObserverPriority.MONITOR) {
+                    monitorIndex = i;
+                }
+
+                contextual |= subscriptions[i].contextual != null;
+            }
+
+            this.subscriptions = subscriptions;
+            this.monitorIndex = monitorIndex;
+            this.contextual = contextual;
+        }
+
+        private void attach(@NotNull EmissionProbe probe) {
+            int index = 0;
+            while (index < probes.length && probes[index] != null) {
+                index++;
+            }
+
+            if (index == probes.length) {
+                probes = Arrays.copyOf(probes, Math.max(4, probes.length * 2));
+            }
+
+            probes[index] = probe;
+            probeCount++;
+        }
+
+        private void detach(@NotNull EmissionProbe probe) {
+            for (int i = 0; i < probes.length; i++) {
+                if (probes[i] == probe) {
+                    probes[i] = null;
+                    probeCount--;
+                    return;
+                }
+            }
+        }
+
+    }
+
+    private static final class ContextImpl implements EmissionContext {
+
+        private boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+    }
+
+    private final class SubImpl implements ObserverSub {
+
+        private final @NotNull ObserverPriority priority;
+        private final @Nullable Consumer<Object> consumer;
+        private final @Nullable BiConsumer<Object, EmissionContext> contextual;
+        private @Nullable ConfinedSet set;
+
+        private SubImpl(@NotNull ObserverPriority priority, @Nullable Consumer<Object> consumer,
+                        @Nullable BiConsumer<Object, EmissionContext> contextual) {
+            this.priority = priority;
+            this.consumer = consumer;
+            this.contextual = contextual;
+        }
+
+        private void call(@Nullable Object object, @NotNull ContextImpl context) {
+            if (consumer != null) {
+                consumer.accept(object);
+            } else {
+                contextual.accept(object, context);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            assert checkOwner();
+            if (set != null) {
+                set.remove(this);
+                reclaim(set);
+                set = null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package dev.tommyjs.jobserve.observer.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Consumer;
+
+/**
+ * Compiles a fixed sequence of consumers into a single {@link MethodHandle} of type
+ * {@code (Object)void}. Each consumer is bound as a constant receiver, so once the handle is hot
+ * the JIT customizes its lambda form and can inline every call site individually, instead of going
+ * through one megamorphic {@link Consumer#accept} call site.
+ */
+final class DispatchCompiler {
+
+    /**
+     * Upper bound on compiled chain length. Each subscriber adds a level of handle nesting, so very
+     * wide sets are left to the generic loop.
+     */
+    static final int MAX_LENGTH = 32;
+
+    private static final MethodType DISPATCH_TYPE = MethodType.methodType(void.class, Object.class);
+    private static final MethodHandle ACCEPT;
+
+    static {
+        try {
+            ACCEPT = MethodHandles.publicLookup().findVirtual(Consumer.class, "accept", DISPATCH_TYPE);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private DispatchCompiler() {
+    }
+
+    static @NotNull MethodHandle compile(@NotNull Consumer<Object> @NotNull [] consumers) {
+        MethodHandle chain = MethodHandles.empty(DISPATCH_TYPE);
+        for (int i = consumers.length - 1; i >= 0; i--) {
+            chain = MethodHandles.foldArguments(chain, ACCEPT.bindTo(consumers[i]));
+        }
+
+        return chain;
+    }
+
+}
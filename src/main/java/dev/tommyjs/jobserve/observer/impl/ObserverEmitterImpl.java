@@ -1,35 +1,174 @@
 package dev.tommyjs.jobserve.observer.impl;
 
+import dev.tommyjs.jobserve.observer.EmissionContext;
+import dev.tommyjs.jobserve.observer.EmissionProbe;
+import dev.tommyjs.jobserve.observer.EmissionWaiter;
+import dev.tommyjs.jobserve.observer.EmitterFootprint;
+import dev.tommyjs.jobserve.observer.EmitterOptions;
+import dev.tommyjs.jobserve.observer.FailurePolicy;
 import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.ObserverPriority;
 import dev.tommyjs.jobserve.observer.ObserverSub;
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 @SuppressWarnings({"unchecked", "rawtypes"})
 public class ObserverEmitterImpl implements ObserverEmitter {
 
+    private final EmitterOptions options;
     private final Map<ObserverKey, ObserverSet> map;
+    private final int cascadeDepth;
+    private final int cascadeBudget;
 
     public ObserverEmitterImpl() {
+        this(EmitterOptions.defaults());
+    }
+
+    public ObserverEmitterImpl(@NotNull EmitterOptions options) {
+        this.options = options;
         this.map = new ConcurrentHashMap<>();
+        this.cascadeDepth = options.getCascadeDepth();
+        this.cascadeBudget = options.getCascadeBudget();
     }
 
     @Override
     public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull Consumer<T> consumer) {
-        return map.computeIfAbsent(key, _k -> new ObserverSet()).subscribe(o -> consumer.accept((T) o));
+        return observe(key, ObserverPriority.NORMAL, consumer);
+    }
+
+    @Override
+    public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull Consumer<T> consumer) {
+        while (true) {
+            ObserverSet set = getSet(key);
+            ObserverSub subscription = set.subscribe(priority, (Consumer) consumer);
+            if (subscription != null) {
+                return subscription;
+            }
+
+            map.remove(key, set);
+        }
+    }
+
+    @Override
+    public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull ObserverPriority priority, @NotNull BiConsumer<T, EmissionContext> consumer) {
+        while (true) {
+            ObserverSet set = getSet(key);
+            ObserverSub subscription = set.subscribe(priority, (BiConsumer) consumer);
+            if (subscription != null) {
+                return subscription;
+            }
+
+            map.remove(key, set);
+        }
+    }
+
+    @Override
+    public void attach(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        while (true) {
+            ObserverSet set = getSet(key);
+            if (set.attach(probe)) {
+                return;
+            }
+
+            map.remove(key, set);
+        }
+    }
+
+    @Override
+    public @NotNull ObserverSub attachWaiter(@NotNull ObserverKey<?> key, @NotNull EmissionWaiter waiter, @NotNull EmissionProbe probe) {
+        while (true) {
+            ObserverSet set = getSet(key);
+            ObserverSub subscription = set.attachWaiter(waiter, probe);
+            if (subscription != null) {
+                return subscription;
+            }
+
+            map.remove(key, set);
+        }
+    }
+
+    @Override
+    public void detach(@NotNull ObserverKey<?> key, @NotNull EmissionProbe probe) {
+        ObserverSet set = map.get(key);
+        if (set != null) {
+            set.detach(probe);
+        }
+    }
+
+    @Override
+    public boolean isObserved(@NotNull ObserverKey<?> key) {
+        ObserverSet set = map.get(key);
+        return set != null && (set.getSubscriberCount() != 0 || set.getProbeCount() != 0);
+    }
+
+    @Override
+    public @NotNull EmitterFootprint footprint() {
+        long bytes = MemoryEstimates.object(2, 0) + MemoryEstimates.hashMap(map.size());
+        Map<ObserverKey<?>, Integer> subscribers = new HashMap<>();
+        int probes = 0;
+
+        for (Map.Entry<ObserverKey, ObserverSet> entry : map.entrySet()) {
+            ObserverSet set = entry.getValue();
+            bytes += set.estimateFootprint();
+            subscribers.put(entry.getKey(), set.getSubscriberCount());
+            probes += set.getProbeCount();
+        }
+
+        return new EmitterFootprint(bytes, Collections.unmodifiableMap(subscribers), probes);
+    }
+
+    /**
+     * Gets the set of a key, creating it if absent. Sets remove themselves from the map once the
+     * removal of their last subscription leaves them empty, and refuse any further additions, so a
+     * caller finding a retired set removes it on its behalf and retries with a new set. Sets are
+     * kept while they only have probes, or once only probes have been detached from them.
+     */
+    private @NotNull ObserverSet getSet(@NotNull ObserverKey<?> key) {
+        ObserverSet set = map.get(key);
+        if (set != null) {
+            return set;
+        }
+
+        return map.computeIfAbsent(key, _k -> new ObserverSet(options, retired -> map.remove(key, retired)));
     }
 
     @Override
     public <T> void emit(@NotNull ObserverKey<T> key, @Nullable T value) {
         ObserverSet set = map.get(key);
         if (set != null) {
-            set.call(value);
+            if (cascadeDepth > 0) {
+                CascadeQueue.emit(set, key, value, cascadeDepth, cascadeBudget);
+            } else {
+                set.call(value);
+            }
         }
     }
 
+    @Override
+    public <T> boolean emitCancellable(@NotNull ObserverKey<T> key, @Nullable T value) {
+        ObserverSet set = map.get(key);
+        if (set == null) {
+            return false;
+        }
+
+        return cascadeDepth > 0 ? CascadeQueue.emit(set, key, value, cascadeDepth, cascadeBudget) : set.call(value);
+    }
+
+    @Override
+    public <T> @NotNull CompletableFuture<Void> emitAsync(@NotNull ObserverKey<T> key, @Nullable T value, @NotNull Executor executor, @NotNull FailurePolicy policy) {
+        ObserverSet set = map.get(key);
+        return set == null ? CompletableFuture.completedFuture(null) : set.callAsync(value, executor, policy);
+    }
+
 }
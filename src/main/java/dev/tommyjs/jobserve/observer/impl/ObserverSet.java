@@ -1,49 +1,793 @@
 package dev.tommyjs.jobserve.observer.impl;
 
+import dev.tommyjs.jobserve.observer.EmissionContext;
+import dev.tommyjs.jobserve.observer.EmissionProbe;
+import dev.tommyjs.jobserve.observer.EmissionWaiter;
+import dev.tommyjs.jobserve.observer.EmissionException;
+import dev.tommyjs.jobserve.observer.EmitterOptions;
+import dev.tommyjs.jobserve.observer.FailurePolicy;
+import dev.tommyjs.jobserve.observer.ObserverPriority;
 import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.SubscriberErrorHandler;
+import dev.tommyjs.jobserve.observer.SubscriberStats;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class ObserverSet {
 
-    private final Set<SubImpl> subscriptions;
-    
+    private static final EmissionProbe[] NO_PROBES = new EmissionProbe[0];
+    private static final VarHandle PROBES = MethodHandles.arrayElementVarHandle(EmissionProbe[].class);
+
+    private final @NotNull EmitterOptions options;
+    private final int compileThreshold;
+    private final boolean isolating;
+    private final int parallelThreshold;
+    private volatile @NotNull Chain chain;
+
+    private volatile EmissionProbe @NotNull [] probes = NO_PROBES;
+    private volatile int probeCount;
+    private volatile @Nullable WaiterQueue waiters;
+
+    private final @Nullable Consumer<ObserverSet> reclaimer;
+    private boolean retired;
+
     public ObserverSet() {
-        this.subscriptions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        this(EmitterOptions.defaults());
+    }
+
+    public ObserverSet(@NotNull EmitterOptions options) {
+        this(options, null);
+    }
+
+    /**
+     * Creates a set which is retired as soon as the removal of its last subscription leaves it
+     * without probes or waiters, after which the reclaimer is called so the owner can drop the
+     * set. A retired set rejects new subscriptions and probes, so the owner must then retry on a
+     * new set. Detaching probes and cancelling waiters never retires a set, so a key which is only
+     * ever watched keeps its set, and pooled watchers and waiters never recreate it.
+     * @param options emitter options
+     * @param reclaimer callback called once, outside the lock of this set, when it is retired
+     */
+    public ObserverSet(@NotNull EmitterOptions options, @Nullable Consumer<ObserverSet> reclaimer) {
+        this.options = options;
+        this.reclaimer = reclaimer;
+        this.compileThreshold = options.getCompileThreshold();
+        this.isolating = options.isIsolateErrors();
+        this.parallelThreshold = options.getParallelThreshold();
+        this.chain = Chain.EMPTY;
+    }
+
+    public @Nullable ObserverSub subscribe(@NotNull Consumer<Object> consumer) {
+        return subscribe(ObserverPriority.NORMAL, consumer);
+    }
+
+    /**
+     * Adds a subscription to this set.
+     * @param priority phase in which to call the consumer
+     * @param consumer callback to be called upon emission
+     * @return subscription, or null if this set has been retired
+     */
+    public @Nullable ObserverSub subscribe(@NotNull ObserverPriority priority, @NotNull Consumer<Object> consumer) {
+        SubImpl subscription = new SubImpl(priority, consumer, null);
+        return add(subscription) ? subscription : null;
+    }
+
+    /**
+     * Adds a contextual subscription to this set.
+     * @param priority phase in which to call the consumer
+     * @param consumer callback to be called upon emission
+     * @return subscription, or null if this set has been retired
+     */
+    public @Nullable ObserverSub subscribe(@NotNull ObserverPriority priority, @NotNull BiConsumer<Object, EmissionContext> consumer) {
+        SubImpl subscription = new SubImpl(priority, null, consumer);
+        return add(subscription) ? subscription : null;
+    }
+
+    /**
+     * Calls all subscribers in priority order. If any subscriber cancels the emission, only the
+     * remaining {@link ObserverPriority#MONITOR} subscribers are called.
+     * @param object emission value
+     * @return whether the emission was cancelled
+     */
+    public boolean call(@Nullable Object object) {
+        boolean cancelled = callChain(object);
+        if (probeCount != 0) {
+            callProbes(object);
+        }
+
+        return cancelled;
+    }
+
+    private boolean callChain(@Nullable Object object) {
+        Chain chain = this.chain;
+        SubImpl[] subscriptions = chain.subscriptions;
+        if (parallelThreshold > 0 && subscriptions.length >= parallelThreshold) {
+            return callParallel(chain, object);
+        }
+
+        if (isolating) {
+            return callIsolated(chain, object);
+        }
+
+        if (!chain.contextual) {
+            MethodHandle dispatcher = chain.dispatcher;
+            if (dispatcher != null) {
+                dispatch(dispatcher, object);
+                return false;
+            }
+
+            if (compileThreshold > 0 && chain.compilable && chain.countEmission() == compileThreshold) {
+                chain.compile();
+            }
+
+            for (SubImpl subscription : subscriptions) {
+                subscription.call(object, null);
+            }
+
+            return false;
+        }
+
+        ContextImpl context = new ContextImpl();
+        int i = 0;
+        while (i < chain.monitorIndex) {
+            subscriptions[i++].call(object, context);
+            if (context.cancelled) {
+                i = chain.monitorIndex;
+            }
+        }
+
+        while (i < subscriptions.length) {
+            subscriptions[i++].call(object, context);
+        }
+
+        return context.cancelled;
+    }
+
+    /**
+     * Calls all subscribers like {@link #callChain(Object)}, but contains subscriber exceptions,
+     * and skips subscribers suspended by their circuit breaker. Never uses a compiled dispatcher,
+     * as every call needs its own exception boundary.
+     */
+    private boolean callIsolated(@NotNull Chain chain, @Nullable Object object) {
+        SubImpl[] subscriptions = chain.subscriptions;
+        ContextImpl context = chain.contextual ? new ContextImpl() : null;
+        int i = 0;
+        if (context != null) {
+            while (i < chain.monitorIndex) {
+                subscriptions[i++].callIsolated(object, context);
+                if (context.cancelled) {
+                    i = chain.monitorIndex;
+                }
+            }
+        }
+
+        while (i < subscriptions.length) {
+            subscriptions[i++].callIsolated(object, context);
+        }
+
+        return context != null && context.cancelled;
+    }
+
+    /**
+     * Calls all subscribers phase by phase, splitting each phase across the parallel pool and
+     * joining it before starting the next.
+     */
+    private boolean callParallel(@NotNull Chain chain, @Nullable Object object) {
+        SubImpl[] subscriptions = chain.subscriptions;
+        ForkJoinPool pool = options.getParallelPool();
+        int leaf = Math.max(1, subscriptions.length / (pool.getParallelism() * 4));
+        ContextImpl context = chain.contextual ? new ContextImpl() : null;
+
+        int start = 0;
+        while (start < subscriptions.length) {
+            if (context != null && context.cancelled && start < chain.monitorIndex) {
+                start = chain.monitorIndex;
+                continue;
+            }
+
+            ObserverPriority priority = subscriptions[start].priority;
+            int end = start + 1;
+            while (end < subscriptions.length && subscriptions[end].priority == priority) {
+                end++;
+            }
+
+            FanOutTask task = new FanOutTask(subscriptions, start, end, leaf, object, context);
+            if (end - start <= leaf) {
+                task.compute();
+            } else if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+
+            start = end;
+        }
+
+        return context != null && context.cancelled;
+    }
+
+    /**
+     * Calls all subscribers as separate tasks on an executor. Each priority phase is started only
+     * once the previous phase has completed, and a cancelled emission skips straight to the
+     * {@link ObserverPriority#MONITOR} phase. Probes are called once all phases have completed.
+     * @param object emission value
+     * @param executor executor to run subscribers on
+     * @param policy how subscriber failures affect the result
+     * @return future completing once the emission has finished
+     */
+    public @NotNull CompletableFuture<Void> callAsync(@Nullable Object object, @NotNull Executor executor, @NotNull FailurePolicy policy) {
+        Chain chain = this.chain;
+        AsyncEmission emission = new AsyncEmission(chain, object, executor, policy);
+        emission.runPhase(0);
+        return emission.result;
+    }
+
+    private void callProbes(@Nullable Object object) {
+        EmissionProbe[] probes = this.probes;
+        for (int i = 0; i < probes.length; i++) {
+            EmissionProbe probe = (EmissionProbe) PROBES.getAcquire(probes, i);
+            if (probe != null) {
+                probe.onEmission(object);
+            }
+        }
+    }
+
+    /**
+     * Attaches a probe to the first free slot of the probe table. The table only grows, so once it
+     * is large enough for the peak number of probes, attaching and detaching never allocate.
+     * @param probe probe to attach
+     * @return whether the probe was attached, which is only false if this set has been retired
+     */
+    public synchronized boolean attach(@NotNull EmissionProbe probe) {
+        if (retired) {
+            return false;
+        }
+
+        EmissionProbe[] probes = this.probes;
+        int index = 0;
+        while (index < probes.length && probes[index] != null) {
+            index++;
+        }
+
+        if (index == probes.length) {
+            probes = Arrays.copyOf(probes, Math.max(4, probes.length * 2));
+            this.probes = probes;
+        }
+
+        PROBES.setRelease(probes, index, probe);
+        probeCount++;
+        return true;
+    }
+
+    /**
+     * Registers a waiter, whose probe is called upon every emission until the waiter is done or
+     * the returned subscription is cancelled. All waiters share a single sentinel probe, attached
+     * with the first waiter, so registering and cancelling a waiter are O(1).
+     * @param waiter waiter
+     * @param probe probe to call upon emission
+     * @return waiter subscription, or null if this set has been retired
+     */
+    public @Nullable ObserverSub attachWaiter(@NotNull EmissionWaiter waiter, @NotNull EmissionProbe probe) {
+        WaiterQueue waiters = this.waiters;
+        if (waiters == null) {
+            synchronized (this) {
+                if (retired) {
+                    return null;
+                }
+
+                waiters = this.waiters;
+                if (waiters == null) {
+                    waiters = new WaiterQueue();
+                    attach(waiters);
+                    this.waiters = waiters;
+                }
+            }
+        }
+
+        return waiters.enqueue(waiter, probe);
+    }
+
+    public synchronized void detach(@NotNull EmissionProbe probe) {
+        EmissionProbe[] probes = this.probes;
+        int index = 0;
+        while (index < probes.length && probes[index] != probe) {
+            index++;
+        }
+
+        if (index < probes.length) {
+            PROBES.setRelease(probes, index, null);
+            probeCount--;
+        }
+    }
+
+    private static void dispatch(@NotNull MethodHandle dispatcher, @Nullable Object object) {
+        try {
+            dispatcher.invokeExact(object);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return chain.subscriptions.length;
+    }
+
+    /**
+     * Returns the number of probes attached to this set, counting each waiter as a probe rather
+     * than the sentinel probe shared by the waiters.
+     * @return probe count
+     */
+    public int getProbeCount() {
+        WaiterQueue waiters = this.waiters;
+        return waiters == null ? probeCount : probeCount - 1 + waiters.size();
+    }
+
+    /**
+     * Checks whether emissions currently go through a dispatcher compiled from the current
+     * subscriber chain.
+     * @return whether the current chain is compiled
+     */
+    public boolean isCompiled() {
+        return chain.dispatcher != null;
+    }
+
+    /**
+     * Estimates the heap usage of this set, its chain and its subscriptions, excluding the
+     * subscriber callbacks.
+     * @return estimated size in bytes
+     */
+    public long estimateFootprint() {
+        SubImpl[] subscriptions = chain.subscriptions;
+        long bytes = MemoryEstimates.object(5, 14);
+        if (subscriptions.length != 0) {
+            bytes += MemoryEstimates.object(2, 10) + MemoryEstimates.array(subscriptions.length)
+                + subscriptions.length * MemoryEstimates.object(4, 36);
+        }
+
+        EmissionProbe[] probes = this.probes;
+        if (probes != NO_PROBES) {
+            bytes += MemoryEstimates.array(probes.length);
+        }
+
+        return bytes;
+    }
+
+    private synchronized boolean add(@NotNull SubImpl subscription) {
+        if (retired) {
+            return false;
+        }
+
+        SubImpl[] prev = chain.subscriptions;
+        SubImpl[] next = new SubImpl[prev.length + 1];
+
+        int index = prev.length;
+        while (index > 0 && prev[index - 1].priority.compareTo(subscription.priority) > 0) {
+            index--;
+        }
+
+        System.arraycopy(prev, 0, next, 0, index);
+        next[index] = subscription;
+        System.arraycopy(prev, index, next, index + 1, prev.length - index);
+        chain = new Chain(next);
+        return true;
+    }
+
+    private void remove(@NotNull SubImpl subscription) {
+        synchronized (this) {
+            SubImpl[] prev = chain.subscriptions;
+            int index = 0;
+            while (index < prev.length && prev[index] != subscription) {
+                index++;
+            }
+
+            if (index == prev.length) {
+                return;
+            }
+
+            SubImpl[] next = new SubImpl[prev.length - 1];
+            System.arraycopy(prev, 0, next, 0, index);
+            System.arraycopy(prev, index + 1, next, index, next.length - index);
+            chain = next.length == 0 ? Chain.EMPTY : new Chain(next);
+            if (!retireIfEmpty()) {
+                return;
+            }
+        }
+
+        reclaimer.accept(this);
     }
-    
-    public ObserverSub subscribe(@NotNull Consumer<Object> consumer) {
-        SubImpl subscription = new SubImpl(consumer);
-        subscriptions.add(subscription);
-        return subscription;
+
+    /**
+     * Retires this set if it is reclaimable and has neither subscriptions nor probes left. Only
+     * called when a subscription is removed, while holding the lock of this set, which is also held
+     * by every addition, so no subscription or probe can be added to a set once it has been
+     * retired. Waiters are registered without the lock, so their queue is retired atomically with
+     * its count of waiters instead.
+     * @return whether this set was retired, in which case the reclaimer must be called
+     */
+    private boolean retireIfEmpty() {
+        WaiterQueue waiters = this.waiters;
+        if (reclaimer == null || chain != Chain.EMPTY || probeCount != (waiters == null ? 0 : 1)) {
+            return false;
+        }
+
+        if (waiters != null && !waiters.retireIfEmpty()) {
+            return false;
+        }
+
+        retired = true;
+        return true;
     }
-    
-    public void call(@Nullable Object object) {
-        for (SubImpl subscription : subscriptions) {
-            subscription.call(object);
+
+    /**
+     * Immutable, priority sorted snapshot of the subscriptions in this set. A new chain is
+     * compiled on every subscribe and cancel, so emissions only ever walk a flat array. Once a
+     * chain has been stable for long enough, it may additionally be compiled into a direct
+     * dispatcher by the {@link DispatchCompiler}.
+     */
+    private static final class Chain {
+
+        private static final Chain EMPTY = new Chain(new SubImpl[0]);
+        private static final VarHandle EMISSIONS;
+
+        static {
+            try {
+                EMISSIONS = MethodHandles.lookup().findVarHandle(Chain.class, "emissions", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
         }
+
+        private final SubImpl @NotNull [] subscriptions;
+        private final int monitorIndex;
+        private final boolean contextual;
+        private final boolean compilable;
+
+        private int emissions;
+        private volatile @Nullable MethodHandle dispatcher;
+
+        private Chain(SubImpl @NotNull [] subscriptions) {
+            this.subscriptions = subscriptions;
+
+            int monitorIndex = subscriptions.length;
+            boolean contextual = false;
+            for (int i = subscriptions.length - 1; i >= 0; i--) {
+                if (subscriptions[i].priority == ObserverPriority.MONITOR) {
+                    monitorIndex = i;
+                }
+
+                contextual |= subscriptions[i].contextual != null;
+            }
+
+            this.monitorIndex = monitorIndex;
+            this.contextual = contextual;
+            this.compilable = !contextual && subscriptions.length > 0 && subscriptions.length <= DispatchCompiler.MAX_LENGTH;
+        }
+
+        /**
+         * Counts an emission through the generic loop. Counting is atomic, so concurrent emitters
+         * never lose counts, and exactly one of them observes the compile threshold.
+         * @return number of emissions counted so far, including this one
+         */
+        private int countEmission() {
+            return (int) EMISSIONS.getAndAdd(this, 1) + 1;
+        }
+
+        private void compile() {
+            @SuppressWarnings("unchecked")
+            Consumer<Object>[] consumers = (Consumer<Object>[]) new Consumer<?>[subscriptions.length];
+            for (int i = 0; i < subscriptions.length; i++) {
+                consumers[i] = subscriptions[i].consumer;
+            }
+
+            dispatcher = DispatchCompiler.compile(consumers);
+        }
+
     }
 
-    private class SubImpl implements ObserverSub {
+    private final class FanOutTask extends RecursiveAction {
+
+        private final SubImpl @NotNull [] subscriptions;
+        private final int from;
+        private final int to;
+        private final int leaf;
+        private final @Nullable Object object;
+        private final @Nullable ContextImpl context;
+
+        private FanOutTask(SubImpl @NotNull [] subscriptions, int from, int to, int leaf,
+                           @Nullable Object object, @Nullable ContextImpl context) {
+            this.subscriptions = subscriptions;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.object = object;
+            this.context = context;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leaf) {
+                for (int i = from; i < to; i++) {
+                    if (isolating) {
+                        subscriptions[i].callIsolated(object, context);
+                    } else {
+                        subscriptions[i].call(object, context);
+                    }
+                }
+
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new FanOutTask(subscriptions, from, mid, leaf, object, context),
+                new FanOutTask(subscriptions, mid, to, leaf, object, context));
+        }
+
+    }
+
+    private final class AsyncEmission {
+
+        private final SubImpl @NotNull [] subscriptions;
+        private final int monitorIndex;
+        private final @Nullable Object object;
+        private final @NotNull Executor executor;
+        private final @NotNull FailurePolicy policy;
+        private final @NotNull ContextImpl context;
+        private final @NotNull AtomicInteger pending;
+        private final @NotNull Queue<Throwable> failures;
+        private final @NotNull CompletableFuture<Void> result;
+
+        private AsyncEmission(@NotNull Chain chain, @Nullable Object object, @NotNull Executor executor, @NotNull FailurePolicy policy) {
+            this.subscriptions = chain.subscriptions;
+            this.monitorIndex = chain.monitorIndex;
+            this.object = object;
+            this.executor = executor;
+            this.policy = policy;
+            this.context = new ContextImpl();
+            this.pending = new AtomicInteger();
+            this.failures = new ConcurrentLinkedQueue<>();
+            this.result = new CompletableFuture<>();
+        }
+
+        private void runPhase(int start) {
+            if (start < monitorIndex && context.cancelled) {
+                start = monitorIndex;
+            }
+
+            if (start >= subscriptions.length) {
+                finish();
+                return;
+            }
+
+            ObserverPriority priority = subscriptions[start].priority;
+            int end = start + 1;
+            while (end < subscriptions.length && subscriptions[end].priority == priority) {
+                end++;
+            }
+
+            pending.set(end - start);
+            for (int i = start; i < end; i++) {
+                SubImpl subscription = subscriptions[i];
+                int next = end;
+                try {
+                    executor.execute(() -> runTask(subscription, next));
+                } catch (Throwable e) {
+                    fail(e);
+                    complete(next);
+                }
+            }
+        }
+
+        private void runTask(@NotNull SubImpl subscription, int next) {
+            boolean skip = policy == FailurePolicy.FAIL_FAST && result.isDone();
+            if (!skip && !(isolating && subscription.isSuspended())) {
+                try {
+                    subscription.call(object, context);
+                    if (isolating) {
+                        subscription.succeeded();
+                    }
+                } catch (Throwable e) {
+                    if (isolating) {
+                        subscription.failed();
+                    }
+
+                    fail(e);
+                }
+            }
+
+            complete(next);
+        }
+
+        private void complete(int next) {
+            if (pending.decrementAndGet() == 0 && !result.isDone()) {
+                runPhase(next);
+            }
+        }
+
+        private void fail(@NotNull Throwable e) {
+            switch (policy) {
+                case FAIL_FAST -> result.completeExceptionally(new EmissionException(List.of(e)));
+                case COLLECT -> failures.add(e);
+                case IGNORE -> {}
+            }
+        }
 
-        private final Consumer<Object> consumer;
+        private void finish() {
+            try {
+                if (probeCount != 0) {
+                    callProbes(object);
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
 
-        public SubImpl(Consumer<Object> consumer) {
+            if (failures.isEmpty()) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(new EmissionException(new ArrayList<>(failures)));
+            }
+        }
+
+    }
+
+    private static final class ContextImpl implements EmissionContext {
+
+        private volatile boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+    }
+
+    private class SubImpl implements ObserverSub, SubscriberStats {
+
+        private static final VarHandle FAILURES;
+        private static final VarHandle CONSECUTIVE_FAILURES;
+        private static final VarHandle TRIPS;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                FAILURES = lookup.findVarHandle(SubImpl.class, "failures", long.class);
+                CONSECUTIVE_FAILURES = lookup.findVarHandle(SubImpl.class, "consecutiveFailures", int.class);
+                TRIPS = lookup.findVarHandle(SubImpl.class, "trips", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final @NotNull ObserverPriority priority;
+        private final @Nullable Consumer<Object> consumer;
+        private final @Nullable BiConsumer<Object, EmissionContext> contextual;
+
+        private volatile long failures;
+        private volatile int consecutiveFailures;
+        private volatile long trips;
+        private volatile long suspendedUntil;
+
+        public SubImpl(@NotNull ObserverPriority priority, @Nullable Consumer<Object> consumer,
+                       @Nullable BiConsumer<Object, EmissionContext> contextual) {
+            this.priority = priority;
             this.consumer = consumer;
+            this.contextual = contextual;
+        }
+
+        public void call(@Nullable Object object, @Nullable ContextImpl context) {
+            if (consumer != null) {
+                consumer.accept(object);
+            } else {
+                contextual.accept(object, context);
+            }
+        }
+
+        public void callIsolated(@Nullable Object object, @Nullable ContextImpl context) {
+            if (isSuspended()) {
+                return;
+            }
+
+            try {
+                call(object, context);
+            } catch (Throwable e) {
+                failed();
+
+                SubscriberErrorHandler handler = options.getErrorHandler();
+                if (handler != null) {
+                    handler.onError(this, e);
+                } else {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+
+                return;
+            }
+
+            succeeded();
+        }
+
+        /**
+         * Resets the failure streak, and closes the breaker if this was a trial call after a
+         * suspension. Only reads shared state in the common case, so healthy subscribers do not
+         * contend on writes.
+         */
+        private void succeeded() {
+            if (consecutiveFailures != 0) {
+                consecutiveFailures = 0;
+            }
+
+            if (suspendedUntil != 0) {
+                suspendedUntil = 0;
+            }
+        }
+
+        private void failed() {
+            FAILURES.getAndAdd(this, 1L);
+            int consecutive = (int) CONSECUTIVE_FAILURES.getAndAdd(this, 1) + 1;
+
+            int threshold = options.getBreakerThreshold();
+            if (threshold > 0 && (consecutive >= threshold || suspendedUntil != 0)) {
+                long until = System.nanoTime() + options.getBreakerCooldownNanos();
+                suspendedUntil = until == 0 ? 1 : until;
+                consecutiveFailures = 0;
+                TRIPS.getAndAdd(this, 1L);
+            }
+        }
+
+        @Override
+        public boolean isSuspended() {
+            long until = suspendedUntil;
+            return until != 0 && System.nanoTime() - until < 0;
+        }
+
+        @Override
+        public long getFailures() {
+            return failures;
+        }
+
+        @Override
+        public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        @Override
+        public long getTrips() {
+            return trips;
         }
 
-        public void call(@Nullable Object object) {
-            consumer.accept(object);
+        @Override
+        public @Nullable SubscriberStats getStats() {
+            return isolating ? this : null;
         }
 
         @Override
         public void cancel() {
-            subscriptions.remove(this);
+            remove(this);
         }
 
     }
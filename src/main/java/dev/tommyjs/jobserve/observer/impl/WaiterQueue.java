@@ -0,0 +1,132 @@
+package dev.tommyjs.jobserve.observer.impl;
+
+import dev.tommyjs.jobserve.observer.EmissionProbe;
+import dev.tommyjs.jobserve.observer.EmissionWaiter;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The waiters of a single {@link ObserverSet}, attached to the set as one sentinel probe. Waiters
+ * are pushed onto a lock-free list, and cancelling a waiter only flags its node, so both are O(1).
+ * Emissions walk the list, calling the probe of every live waiter and unlinking the nodes of
+ * finished waiters as they go. While there are no waiters, an emission only reads the list head.
+ * <p>
+ * The number of registered waiters shares a single word with a retired flag, so a set can only be
+ * retired while no waiter is registered, and no waiter can be registered once it is retired. The
+ * last waiter leaving does not retire the set, which only happens when a subscription is removed.
+ */
+final class WaiterQueue implements EmissionProbe {
+
+    private static final long RETIRED = 1L << 62;
+    private static final VarHandle HEAD;
+    private static final VarHandle STATE;
+    private static final VarHandle CANCELLED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(WaiterQueue.class, "head", Node.class);
+            STATE = lookup.findVarHandle(WaiterQueue.class, "state", long.class);
+            CANCELLED = lookup.findVarHandle(Node.class, "cancelled", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile @Nullable Node head;
+    private volatile long state;
+
+    /**
+     * Registers a waiter, whose probe is called upon every emission until the waiter is done or
+     * the returned node is cancelled.
+     * @param waiter waiter
+     * @param probe probe to call upon emission
+     * @return registered node, or null if the queue has been retired
+     */
+    @Nullable Node enqueue(@NotNull EmissionWaiter waiter, @NotNull EmissionProbe probe) {
+        long state;
+        do {
+            state = this.state;
+            if ((state & RETIRED) != 0) {
+                return null;
+            }
+        } while (!STATE.compareAndSet(this, state, state + 1));
+
+        Node node = new Node(waiter, probe);
+        Node head;
+        do {
+            head = this.head;
+            node.next = head;
+        } while (!HEAD.compareAndSet(this, head, node));
+
+        return node;
+    }
+
+    /**
+     * Retires this queue if no waiter is registered.
+     * @return whether this queue was retired
+     */
+    boolean retireIfEmpty() {
+        return STATE.compareAndSet(this, 0L, RETIRED);
+    }
+
+    int size() {
+        return (int) (state & ~RETIRED);
+    }
+
+    @Override
+    public void onEmission(@Nullable Object value) {
+        Node pred = null;
+        Node node = head;
+        while (node != null) {
+            Node next = node.next;
+            if (!node.isLive()) {
+                if (pred != null) {
+                    pred.next = next;
+                } else if (!HEAD.compareAndSet(this, node, next)) {
+                    pred = node;
+                }
+            } else {
+                node.probe.onEmission(value);
+                pred = node;
+            }
+
+            node = next;
+        }
+    }
+
+    /**
+     * A registered waiter. Nodes are only unlinked by emissions, and a node skipped over by
+     * concurrent unlinking can at worst be relinked, after which it is unlinked again, so live
+     * nodes are never lost.
+     */
+    final class Node implements ObserverSub {
+
+        private final @NotNull EmissionWaiter waiter;
+        private final @NotNull EmissionProbe probe;
+        private volatile @Nullable Node next;
+        private volatile boolean cancelled;
+
+        private Node(@NotNull EmissionWaiter waiter, @NotNull EmissionProbe probe) {
+            this.waiter = waiter;
+            this.probe = probe;
+        }
+
+        private boolean isLive() {
+            return !cancelled && !waiter.isDone();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled && CANCELLED.compareAndSet(this, false, true)) {
+                STATE.getAndAdd(WaiterQueue.this, -1L);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,200 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An operation applied to every holder of a collection, obtained with
+ * {@link PropertyHolders#bulk(Collection)}. The collection is split into partitions with its
+ * {@link Spliterator}, which are processed in parallel by the tasks of a {@link ForkJoinPool}.
+ * <p>
+ * Each holder is updated with a single locked operation on its own map, so a holder emits at most
+ * one event per operation: a {@link PropertyUpdate} for single key operations, and a
+ * {@link PropertyBatchUpdate} for operations on several keys. An exception thrown for one holder
+ * does not stop the operation, and is reported in the returned {@link BulkStats}.
+ * <p>
+ * Holders backed by a {@link ConfinedPropertyMap} must not be used, as they would be accessed
+ * from pool threads.
+ */
+public final class BulkOperation {
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final @NotNull Collection<? extends PropertyHolder> holders;
+    private final @NotNull ForkJoinPool pool;
+
+    private BulkOperation(@NotNull Collection<? extends PropertyHolder> holders, @NotNull ForkJoinPool pool) {
+        this.holders = holders;
+        this.pool = pool;
+    }
+
+    /**
+     * Runs this operation on a given pool, instead of the common pool.
+     * @param pool fork join pool
+     * @return new bulk operation
+     */
+    public @NotNull BulkOperation pool(@NotNull ForkJoinPool pool) {
+        return new BulkOperation(holders, pool);
+    }
+
+    /**
+     * Updates a property of every holder with a function, as with
+     * {@link PropertyMap#updatePropertyAndGet(PropertyKey, Function)}. A holder is counted as
+     * changed if the function returned a different instance to the stored value.
+     * @param key property key
+     * @param function function from the current value to the new value
+     * @return operation statistics
+     */
+    public <T> @NotNull BulkStats apply(@NotNull PropertyKey<T> key, @NotNull Function<@Nullable T, @Nullable T> function) {
+        return run(holder -> {
+            Object[] prev = new Object[1];
+            T curr = holder.getPropertyMap().updatePropertyAndGet(key, value -> {
+                prev[0] = value;
+                return function.apply(value);
+            });
+
+            return prev[0] != curr;
+        });
+    }
+
+    /**
+     * Clears the given properties of every holder. Properties which are not stored are left
+     * untouched, and holders storing none of the properties emit nothing.
+     * @param keys property keys to clear
+     * @return operation statistics
+     */
+    public @NotNull BulkStats clear(@NotNull Set<PropertyKey<?>> keys) {
+        return run(holder -> !holder.getPropertyMap().updateAll(keys, view -> {
+            PropertyChanges changes = PropertyChanges.create();
+            for (PropertyKey<?> key : keys) {
+                if (view.getProperty(key) != null) {
+                    changes.clear(key);
+                }
+            }
+
+            return changes;
+        }).updates().isEmpty());
+    }
+
+    /**
+     * Copies the given properties of a source holder into every holder. The source values are
+     * read once, as a consistent snapshot, before any holder is updated, and properties not stored
+     * by the source are cleared.
+     * @param source holder to copy properties from
+     * @param keys property keys to copy
+     * @return operation statistics
+     */
+    public @NotNull BulkStats copyFrom(@NotNull PropertyHolder source, @NotNull Set<PropertyKey<?>> keys) {
+        PropertyChanges snapshot = PropertyChanges.create();
+        source.getPropertyMap().updateAll(keys, view -> {
+            for (PropertyKey<?> key : keys) {
+                copy(view, snapshot, key);
+            }
+
+            return PropertyChanges.create();
+        });
+
+        return run(holder -> !holder.getPropertyMap().updateAll(keys, view -> snapshot).updates().isEmpty());
+    }
+
+    private @NotNull BulkStats run(@NotNull Predicate<PropertyHolder> action) {
+        long start = System.nanoTime();
+        long threshold = Math.max(1, holders.size() / ((long) pool.getParallelism() * PARTITIONS_PER_THREAD));
+        Partition result = pool.invoke(new PartitionTask(holders.spliterator(), threshold, action));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return new BulkStats(result.holders, result.changed, Collections.unmodifiableList(result.failures), result.partitions, elapsed);
+    }
+
+    private static <T> void copy(@NotNull PropertyView view, @NotNull PropertyChanges changes, @NotNull PropertyKey<T> key) {
+        changes.set(key, view.getProperty(key));
+    }
+
+    /**
+     * Creates a bulk operation over a collection of holders, running on the common pool.
+     * @param holders property holders
+     * @return new bulk operation
+     */
+    public static @NotNull BulkOperation create(@NotNull Collection<? extends PropertyHolder> holders) {
+        return new BulkOperation(holders, ForkJoinPool.commonPool());
+    }
+
+    private static final class Partition {
+
+        private long holders;
+        private long changed;
+        private int partitions;
+        private final @NotNull List<RuntimeException> failures = new ArrayList<>(0);
+
+        private void run(@NotNull PropertyHolder holder, @NotNull Predicate<PropertyHolder> action) {
+            holders++;
+            try {
+                if (action.test(holder)) {
+                    changed++;
+                }
+            } catch (RuntimeException e) {
+                failures.add(e);
+            }
+        }
+
+        private void merge(@NotNull Partition other) {
+            holders += other.holders;
+            changed += other.changed;
+            partitions += other.partitions;
+            failures.addAll(other.failures);
+        }
+
+    }
+
+    private static final class PartitionTask extends RecursiveTask<Partition> {
+
+        private final @NotNull Spliterator<? extends PropertyHolder> spliterator;
+        private final long threshold;
+        private final @NotNull Predicate<PropertyHolder> action;
+
+        private PartitionTask(@NotNull Spliterator<? extends PropertyHolder> spliterator, long threshold, @NotNull Predicate<PropertyHolder> action) {
+            this.spliterator = spliterator;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected @NotNull Partition compute() {
+            Spliterator<? extends PropertyHolder> remaining = spliterator;
+            List<PartitionTask> forked = new ArrayList<>();
+            while (remaining.estimateSize() > threshold) {
+                Spliterator<? extends PropertyHolder> prefix = remaining.trySplit();
+                if (prefix == null) {
+                    break;
+                }
+
+                PartitionTask task = new PartitionTask(prefix, threshold, action);
+                task.fork();
+                forked.add(task);
+            }
+
+            Partition partition = new Partition();
+            partition.partitions = 1;
+            remaining.forEachRemaining(holder -> partition.run(holder, action));
+
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                partition.merge(forked.get(i).join());
+            }
+
+            return partition;
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Result of a {@link BulkOperation}.
+ * @param holders number of holders processed, including failed holders
+ * @param changed number of holders with at least one changed property
+ * @param failures exceptions thrown by failed holders
+ * @param partitions number of partitions the holders were split into
+ * @param elapsed wall clock duration of the operation
+ */
+public record BulkStats(long holders, long changed, @NotNull List<RuntimeException> failures, int partitions, @NotNull Duration elapsed) {
+
+    /**
+     * Returns the number of holders for which the operation threw.
+     * @return failed holder count
+     */
+    public int failed() {
+        return failures.size();
+    }
+
+}
@@ -0,0 +1,16 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.util.Confined;
+
+/**
+ * A {@link PropertyMap} confined to a single owning thread, created with
+ * {@link PropertyMap#createConfined()}. Properties are stored in a plain hash map, and the map
+ * emits through a {@link dev.tommyjs.jobserve.observer.ConfinedObserverEmitter}, so reads, writes
+ * and emissions perform no volatile accesses, CAS, or locking. Handing off the map also hands off
+ * its emitter. Expiring properties are supported, but since no other thread may touch the map, an
+ * expired property is only hidden from reads and is never removed or announced with an update.
+ * @see Confined
+ */
+public interface ConfinedPropertyMap extends PropertyMap, Confined {
+
+}
@@ -0,0 +1,83 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * A property whose value is a {@link PropertyCounter}, read with
+ * {@link PropertyMap#getCounter(CounterProperty)}. By default counters never emit, and
+ * {@link #sampled(int)} or {@link #periodic(Duration)} enable emissions. Every modifier returns a
+ * new key for the same property.
+ */
+public final class CounterProperty {
+
+    private final @NotNull PropertyKey<PropertyCounter> key;
+    private final int sampleRate;
+    private final long periodNanos;
+
+    private CounterProperty(@NotNull PropertyKey<PropertyCounter> key, int sampleRate, long periodNanos) {
+        this.key = key;
+        this.sampleRate = sampleRate;
+        this.periodNanos = periodNanos;
+    }
+
+    public @NotNull PropertyKey<PropertyCounter> getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the average number of changes per sampled emission.
+     * @return sample rate, or 0 if changes are not sampled
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Returns the interval between periodic emissions.
+     * @return period in nanoseconds, or 0 if the counter is not emitted periodically
+     */
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Emits the sum of the counter after a random sample of changes, on average once every given
+     * number of changes. Sampling takes no shared state, so it does not add contention between
+     * threads. A rate of 1 emits after every change.
+     * @param rate average number of changes per emission
+     * @return new counter key
+     */
+    public @NotNull CounterProperty sampled(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive");
+        }
+
+        return new CounterProperty(key, rate, periodNanos);
+    }
+
+    /**
+     * Emits the sum of the counter at a fixed interval timed by the shared
+     * {@link dev.tommyjs.jobserve.util.TimingWheel}, if it has changed since the last emission.
+     * Emissions run on the common fork-join pool, and stop once the counter is no longer stored.
+     * @param period interval between emissions
+     * @return new counter key
+     */
+    public @NotNull CounterProperty periodic(@NotNull Duration period) {
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+
+        return new CounterProperty(key, sampleRate, period.toNanos());
+    }
+
+    public static @NotNull CounterProperty create(@NotNull String identifier) {
+        return new CounterProperty(PropertyKey.register(identifier, PropertyCounter.class), 0, 0);
+    }
+
+    public static @NotNull CounterProperty create() {
+        return new CounterProperty(PropertyKey.register(PropertyCounter.class), 0, 0);
+    }
+
+}
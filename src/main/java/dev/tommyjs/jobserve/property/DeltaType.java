@@ -0,0 +1,28 @@
+package dev.tommyjs.jobserve.property;
+
+/**
+ * Kind of mutation described by a {@link PropertyListDelta} or {@link PropertyMapDelta}.
+ */
+public enum DeltaType {
+
+    /**
+     * An element was added, and no element was replaced.
+     */
+    ADDED,
+
+    /**
+     * An element was removed.
+     */
+    REMOVED,
+
+    /**
+     * An element was replaced by another.
+     */
+    REPLACED,
+
+    /**
+     * Every element of a list was removed at once.
+     */
+    CLEARED
+
+}
@@ -0,0 +1,83 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * A property whose value is a cached copy of data loaded asynchronously, read with
+ * {@link PropertyMap#getPropertyAsync(LoadingPropertyKey)}. Concurrent reads of a property which
+ * is not loaded share a single load, and loaded properties are bounded by a {@link PropertyCache}.
+ * Every modifier returns a new key for the same property.
+ * @param <T> property value type
+ */
+public final class LoadingPropertyKey<T> {
+
+    private final @NotNull PropertyKey<T> key;
+    private final @NotNull PropertyLoader<T> loader;
+    private final long refreshAfterNanos;
+    private final @NotNull PropertyCache cache;
+
+    private LoadingPropertyKey(@NotNull PropertyKey<T> key, @NotNull PropertyLoader<T> loader, long refreshAfterNanos, @NotNull PropertyCache cache) {
+        this.key = key;
+        this.loader = loader;
+        this.refreshAfterNanos = refreshAfterNanos;
+        this.cache = cache;
+    }
+
+    public @NotNull PropertyKey<T> getKey() {
+        return key;
+    }
+
+    public @NotNull PropertyLoader<T> getLoader() {
+        return loader;
+    }
+
+    /**
+     * Returns the age after which a read of a loaded value starts reloading it.
+     * @return refresh age in nanoseconds, or 0 if values are never refreshed
+     */
+    public long getRefreshAfterNanos() {
+        return refreshAfterNanos;
+    }
+
+    public @NotNull PropertyCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Refreshes loaded values ahead of time. A read of a value older than the given age still
+     * returns the current value immediately, but also starts a load in the background, which
+     * replaces the value once complete.
+     * @param age age after which values are refreshed
+     * @return new loading key
+     */
+    public @NotNull LoadingPropertyKey<T> refreshAfter(@NotNull Duration age) {
+        if (age.isNegative() || age.isZero()) {
+            throw new IllegalArgumentException("Refresh age must be positive");
+        }
+
+        return new LoadingPropertyKey<>(key, loader, age.toNanos(), cache);
+    }
+
+    /**
+     * Bounds the values loaded through this key by a given cache, rather than the shared cache.
+     * @param cache property cache
+     * @return new loading key
+     */
+    public @NotNull LoadingPropertyKey<T> cache(@NotNull PropertyCache cache) {
+        return new LoadingPropertyKey<>(key, loader, refreshAfterNanos, cache);
+    }
+
+    /**
+     * Creates a loading key for a property, using the shared {@link PropertyCache}.
+     * @param key property key
+     * @param loader value loader
+     * @return new loading key
+     * @param <T> property value type
+     */
+    public static <T> @NotNull LoadingPropertyKey<T> create(@NotNull PropertyKey<T> key, @NotNull PropertyLoader<T> loader) {
+        return new LoadingPropertyKey<>(key, loader, 0, PropertyCache.shared());
+    }
+
+}
@@ -0,0 +1,99 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A list stored as a property value, obtained with {@link PropertyMap#getList(ObservableListProperty)},
+ * which is mutated in place and emits a {@link PropertyListDelta} on
+ * {@link PropertyMap#UPDATE_LIST_KEY} for every mutation, rather than a {@link PropertyUpdate}
+ * carrying copies of the whole list.
+ * <p>
+ * All methods are safe to call concurrently. Each mutation increments the version of the list, and
+ * deltas are emitted after the mutation has been applied, so deltas of concurrent mutations may be
+ * delivered out of order, but can be ordered by their version. Null elements are not permitted.
+ * @param <E> element type
+ */
+public interface ObservableList<E> {
+
+    /**
+     * Retrieves the element at an index.
+     * @param index element index
+     * @return element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @NotNull E get(int index);
+
+    int size();
+
+    boolean isEmpty();
+
+    boolean contains(@NotNull E element);
+
+    /**
+     * Appends an element to the end of this list.
+     * @param element element to add
+     */
+    void add(@NotNull E element);
+
+    /**
+     * Inserts an element at an index, shifting later elements.
+     * @param index insertion index
+     * @param element element to add
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    void add(int index, @NotNull E element);
+
+    /**
+     * Replaces the element at an index.
+     * @param index element index
+     * @param element new element
+     * @return replaced element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @NotNull E set(int index, @NotNull E element);
+
+    /**
+     * Removes the element at an index, shifting later elements.
+     * @param index element index
+     * @return removed element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @NotNull E remove(int index);
+
+    /**
+     * Removes the first occurrence of an element.
+     * @param element element to remove
+     * @return whether the element was removed
+     */
+    boolean remove(@NotNull E element);
+
+    /**
+     * Removes all elements, emitting a single {@link DeltaType#CLEARED} delta if the list was not
+     * empty.
+     */
+    void clear();
+
+    /**
+     * Copies the current elements of this list.
+     * @return unmodifiable copy of this list
+     */
+    @NotNull List<E> snapshot();
+
+    long getVersion();
+
+    /**
+     * Creates an empty list, which emits its deltas on a given owner under the key of a property.
+     * The list is not stored by this method, see {@link PropertyMap#getList(ObservableListProperty)}.
+     * @param owner observable to emit deltas on
+     * @param property list property
+     * @return new list
+     */
+    static <E> @NotNull ObservableList<E> create(@NotNull Observable owner, @NotNull ObservableListProperty<E> property) {
+        return new ObservableListImpl<>(owner, property.getKey().getIdentifier());
+    }
+
+}
@@ -0,0 +1,202 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ObservableList} backed by an {@link ArrayList} guarded by a lock. Deltas are emitted
+ * after the lock is released, so subscribers may freely read and mutate the list, including from
+ * other threads during a parallel emission.
+ */
+final class ObservableListImpl<E> implements ObservableList<E> {
+
+    private final @NotNull Observable owner;
+    private final @NotNull String key;
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull ArrayList<E> elements = new ArrayList<>();
+    private long version;
+
+    ObservableListImpl(@NotNull Observable owner, @NotNull String key) {
+        this.owner = owner;
+        this.key = key;
+    }
+
+    @Override
+    public @NotNull E get(int index) {
+        lock.lock();
+        try {
+            return elements.get(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(@NotNull E element) {
+        lock.lock();
+        try {
+            return elements.contains(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(@NotNull E element) {
+        Objects.requireNonNull(element);
+
+        int index;
+        long version;
+        lock.lock();
+        try {
+            index = elements.size();
+            elements.add(element);
+            version = ++this.version;
+        } finally {
+            lock.unlock();
+        }
+
+        emit(DeltaType.ADDED, index, null, element, version);
+    }
+
+    @Override
+    public void add(int index, @NotNull E element) {
+        Objects.requireNonNull(element);
+
+        long version;
+        lock.lock();
+        try {
+            elements.add(index, element);
+            version = ++this.version;
+        } finally {
+            lock.unlock();
+        }
+
+        emit(DeltaType.ADDED, index, null, element, version);
+    }
+
+    @Override
+    public @NotNull E set(int index, @NotNull E element) {
+        Objects.requireNonNull(element);
+
+        E prev;
+        long version;
+        lock.lock();
+        try {
+            prev = elements.set(index, element);
+            version = ++this.version;
+        } finally {
+            lock.unlock();
+        }
+
+        emit(DeltaType.REPLACED, index, prev, element, version);
+        return prev;
+    }
+
+    @Override
+    public @NotNull E remove(int index) {
+        E prev;
+        long version;
+        lock.lock();
+        try {
+            prev = elements.remove(index);
+            version = ++this.version;
+        } finally {
+            lock.unlock();
+        }
+
+        emit(DeltaType.REMOVED, index, prev, null, version);
+        return prev;
+    }
+
+    @Override
+    public boolean remove(@NotNull E element) {
+        E prev;
+        int index;
+        long version;
+        lock.lock();
+        try {
+            index = elements.indexOf(element);
+            if (index < 0) {
+                return false;
+            }
+
+            prev = elements.remove(index);
+            version = ++this.version;
+        } finally {
+            lock.unlock();
+        }
+
+        emit(DeltaType.REMOVED, index, prev, null, version);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        long version;
+        lock.lock();
+        try {
+            if (elements.isEmpty()) {
+                return;
+            }
+
+            elements.clear();
+            version = ++this.version;
+        } finally {
+            lock.unlock();
+        }
+
+        emit(DeltaType.CLEARED, -1, null, null, version);
+    }
+
+    @Override
+    public @NotNull List<E> snapshot() {
+        lock.lock();
+        try {
+            return List.copyOf(elements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void emit(@NotNull DeltaType type, int index, @Nullable Object prev, @Nullable Object curr, long version) {
+        owner.emit(PropertyMap.UPDATE_LIST_KEY, new PropertyListDelta(key, type, index, prev, curr, version));
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+}
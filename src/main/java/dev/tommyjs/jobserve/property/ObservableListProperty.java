@@ -0,0 +1,36 @@
+package dev.tommyjs.jobserve.property;
+
+import com.google.common.reflect.TypeParameter;
+import com.google.common.reflect.TypeToken;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A property whose value is an {@link ObservableList}, read with
+ * {@link PropertyMap#getList(ObservableListProperty)}.
+ * @param <E> element type
+ */
+public final class ObservableListProperty<E> {
+
+    private final @NotNull PropertyKey<ObservableList<E>> key;
+
+    private ObservableListProperty(@NotNull PropertyKey<ObservableList<E>> key) {
+        this.key = key;
+    }
+
+    public @NotNull PropertyKey<ObservableList<E>> getKey() {
+        return key;
+    }
+
+    public static <E> @NotNull ObservableListProperty<E> create(@NotNull String identifier, @NotNull Class<E> type) {
+        return new ObservableListProperty<>(PropertyKey.register(identifier, token(type)));
+    }
+
+    public static <E> @NotNull ObservableListProperty<E> create(@NotNull Class<E> type) {
+        return new ObservableListProperty<>(PropertyKey.register(token(type)));
+    }
+
+    private static <E> @NotNull TypeToken<ObservableList<E>> token(@NotNull Class<E> type) {
+        return new TypeToken<ObservableList<E>>(){}.where(new TypeParameter<>(){}, type);
+    }
+
+}
@@ -0,0 +1,73 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * A map stored as a property value, obtained with {@link PropertyMap#getMap(ObservableMapProperty)},
+ * which is mutated in place and emits a {@link PropertyMapDelta} on
+ * {@link PropertyMap#UPDATE_MAP_KEY} for every mutation, rather than a {@link PropertyUpdate}
+ * carrying copies of the whole map.
+ * <p>
+ * All methods are safe to call concurrently. Each mutation increments the version of the map, and
+ * deltas are emitted after the mutation has been applied, so deltas of concurrent mutations may be
+ * delivered out of order, but can be ordered by their version. Null keys and values are not
+ * permitted.
+ * @param <K> entry key type
+ * @param <V> entry value type
+ */
+public interface ObservableMap<K, V> {
+
+    @Nullable V get(@NotNull K key);
+
+    boolean containsKey(@NotNull K key);
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * Associates a value with a key, emitting {@link DeltaType#ADDED} or
+     * {@link DeltaType#REPLACED}.
+     * @param key entry key
+     * @param value entry value
+     * @return previous value, or null if there was none
+     */
+    @Nullable V put(@NotNull K key, @NotNull V value);
+
+    /**
+     * Removes the entry for a key, emitting {@link DeltaType#REMOVED} if there was one.
+     * @param key entry key
+     * @return removed value, or null if there was none
+     */
+    @Nullable V remove(@NotNull K key);
+
+    /**
+     * Removes every entry, emitting {@link DeltaType#REMOVED} for each.
+     */
+    void clear();
+
+    /**
+     * Copies the current entries of this map. Entries mutated concurrently may or may not be
+     * reflected in the copy.
+     * @return unmodifiable copy of this map
+     */
+    @NotNull Map<K, V> snapshot();
+
+    long getVersion();
+
+    /**
+     * Creates an empty map, which emits its deltas on a given owner under the key of a property.
+     * The map is not stored by this method, see {@link PropertyMap#getMap(ObservableMapProperty)}.
+     * @param owner observable to emit deltas on
+     * @param property map property
+     * @return new map
+     */
+    static <K, V> @NotNull ObservableMap<K, V> create(@NotNull Observable owner, @NotNull ObservableMapProperty<K, V> property) {
+        return new ObservableMapImpl<>(owner, property.getKey().getIdentifier());
+    }
+
+}
@@ -0,0 +1,110 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ObservableMap} backed by a {@link ConcurrentHashMap}. Versions are taken inside the
+ * atomic compute of each entry, so the versions of mutations of the same key always match the
+ * order in which they were applied.
+ */
+final class ObservableMapImpl<K, V> implements ObservableMap<K, V> {
+
+    private final @NotNull Observable owner;
+    private final @NotNull String key;
+    private final @NotNull ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+    private final @NotNull AtomicLong version = new AtomicLong();
+
+    ObservableMapImpl(@NotNull Observable owner, @NotNull String key) {
+        this.owner = owner;
+        this.key = key;
+    }
+
+    @Override
+    public @Nullable V get(@NotNull K key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public boolean containsKey(@NotNull K key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+
+        Object[] prev = new Object[1];
+        long[] version = new long[1];
+        entries.compute(key, (k, v) -> {
+            prev[0] = v;
+            version[0] = this.version.incrementAndGet();
+            return value;
+        });
+
+        emit(prev[0] == null ? DeltaType.ADDED : DeltaType.REPLACED, key, prev[0], value, version[0]);
+        return (V) prev[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(@NotNull K key) {
+        Object[] prev = new Object[1];
+        long[] version = new long[1];
+        entries.computeIfPresent(key, (k, v) -> {
+            prev[0] = v;
+            version[0] = this.version.incrementAndGet();
+            return null;
+        });
+
+        if (prev[0] != null) {
+            emit(DeltaType.REMOVED, key, prev[0], null, version[0]);
+        }
+
+        return (V) prev[0];
+    }
+
+    @Override
+    public void clear() {
+        for (K key : entries.keySet()) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public @NotNull Map<K, V> snapshot() {
+        return Map.copyOf(entries);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void emit(@NotNull DeltaType type, @NotNull Object entryKey, @Nullable Object prev, @Nullable Object curr, long version) {
+        owner.emit(PropertyMap.UPDATE_MAP_KEY, new PropertyMapDelta(key, type, entryKey, prev, curr, version));
+    }
+
+    @Override
+    public String toString() {
+        return entries.toString();
+    }
+
+}
@@ -0,0 +1,39 @@
+package dev.tommyjs.jobserve.property;
+
+import com.google.common.reflect.TypeParameter;
+import com.google.common.reflect.TypeToken;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A property whose value is an {@link ObservableMap}, read with
+ * {@link PropertyMap#getMap(ObservableMapProperty)}.
+ * @param <K> entry key type
+ * @param <V> entry value type
+ */
+public final class ObservableMapProperty<K, V> {
+
+    private final @NotNull PropertyKey<ObservableMap<K, V>> key;
+
+    private ObservableMapProperty(@NotNull PropertyKey<ObservableMap<K, V>> key) {
+        this.key = key;
+    }
+
+    public @NotNull PropertyKey<ObservableMap<K, V>> getKey() {
+        return key;
+    }
+
+    public static <K, V> @NotNull ObservableMapProperty<K, V> create(@NotNull String identifier, @NotNull Class<K> keyType, @NotNull Class<V> valueType) {
+        return new ObservableMapProperty<>(PropertyKey.register(identifier, token(keyType, valueType)));
+    }
+
+    public static <K, V> @NotNull ObservableMapProperty<K, V> create(@NotNull Class<K> keyType, @NotNull Class<V> valueType) {
+        return new ObservableMapProperty<>(PropertyKey.register(token(keyType, valueType)));
+    }
+
+    private static <K, V> @NotNull TypeToken<ObservableMap<K, V>> token(@NotNull Class<K> keyType, @NotNull Class<V> valueType) {
+        return new TypeToken<ObservableMap<K, V>>(){}
+            .where(new TypeParameter<K>(){}, keyType)
+            .where(new TypeParameter<V>(){}, valueType);
+    }
+
+}
@@ -0,0 +1,8 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public record PropertyBatchUpdate(@NotNull List<PropertyUpdate> updates) {
+}
@@ -0,0 +1,73 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.property.impl.ClockPropertyCache;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A size bounded set of loaded properties, shared by any number of property maps. Once the cache
+ * is full, loading another property evicts a property which has not been read recently, removing
+ * it from its map with a regular {@link PropertyUpdate} to null.
+ * @see LoadingPropertyKey
+ */
+public interface PropertyCache {
+
+    int getCapacity();
+
+    int getSize();
+
+    /**
+     * Adds an entry to this cache, evicting another entry if the cache is full. Admitting an entry
+     * which is already in the cache only marks it as recently read.
+     * @param entry cache entry
+     */
+    void admit(@NotNull Entry entry);
+
+    /**
+     * Marks an entry of this cache as recently read. Called on every cache hit, so this method
+     * should avoid contention.
+     * @param entry cache entry
+     */
+    void touch(@NotNull Entry entry);
+
+    /**
+     * Removes an entry from this cache without evicting it, as its property has been removed or
+     * reloaded into another cache. Does nothing if the entry is not in this cache.
+     * @param entry cache entry
+     */
+    void remove(@NotNull Entry entry);
+
+    /**
+     * Creates a new cache with a given capacity. Eviction follows the CLOCK policy, an
+     * approximation of least recently used which only sets a flag on reads, so cache hits never
+     * contend on a lock.
+     * @param capacity maximum number of loaded properties
+     * @return new property cache
+     */
+    static @NotNull PropertyCache create(int capacity) {
+        return new ClockPropertyCache(capacity);
+    }
+
+    /**
+     * Returns the cache used by loading keys without a cache of their own.
+     * @return shared property cache
+     */
+    static @NotNull PropertyCache shared() {
+        return ClockPropertyCache.SHARED;
+    }
+
+    /**
+     * A loaded property held by a {@link PropertyCache}. Entries are created by property maps, and
+     * belong to at most one cache at a time.
+     */
+    interface Entry {
+
+        /**
+         * Removes the property of this entry from its map, emitting an update to null if it was
+         * still stored. Caches call this method once they have dropped the entry, and must not
+         * hold any lock while doing so.
+         */
+        void evict();
+
+    }
+
+}
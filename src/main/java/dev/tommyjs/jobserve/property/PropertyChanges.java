@@ -0,0 +1,62 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set of property mutations to be applied together by {@link PropertyMap#updateAll}. Mutations
+ * are applied in the order they were first added, and later mutations of the same property
+ * replace earlier ones.
+ */
+public final class PropertyChanges {
+
+    private final @NotNull Map<String, Object> changes;
+
+    private PropertyChanges() {
+        this.changes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Sets a property with a given property key to a given value. If the given value is null,
+     * the value will no longer be stored.
+     * @param key property key
+     * @param value new stored value
+     * @return this change set
+     */
+    public <T> @NotNull PropertyChanges set(@NotNull PropertyKey<T> key, @Nullable T value) {
+        changes.put(key.getIdentifier(), value);
+        return this;
+    }
+
+    /**
+     * Clears a property with a given property key. This action is equivalent to calling
+     * {@link #set(PropertyKey, Object)} with {@code null}.
+     * @param key property key
+     * @return this change set
+     */
+    public <T> @NotNull PropertyChanges clear(@NotNull PropertyKey<T> key) {
+        return set(key, null);
+    }
+
+    /**
+     * Gets all mutations in this change set, indexed by property identifier. A null value
+     * indicates the property is to be cleared.
+     * @return unmodifiable view of the mutations
+     */
+    public @NotNull Map<String, Object> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * Creates a new, empty change set.
+     * @return new change set
+     */
+    public static @NotNull PropertyChanges create() {
+        return new PropertyChanges();
+    }
+
+}
@@ -0,0 +1,51 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A counter stored as a property value, obtained with {@link PropertyMap#getCounter(CounterProperty)}.
+ * Counts are spread over striped cells, as in a {@link java.util.concurrent.atomic.LongAdder}, so
+ * concurrent increments from many threads rarely contend with each other, and reading the counter
+ * sums the cells.
+ * <p>
+ * Counters do not emit on every change. Depending on the {@link CounterProperty}, the current sum
+ * is emitted as a {@link PropertyCounterUpdate} on {@link PropertyMap#UPDATE_COUNTER_KEY} for a
+ * sample of changes, periodically, or never.
+ */
+public interface PropertyCounter {
+
+    void increment();
+
+    void decrement();
+
+    /**
+     * Adds a given value to this counter.
+     * @param delta value to add
+     */
+    void add(long delta);
+
+    /**
+     * Returns the current sum of this counter. Changes made concurrently with the sum may or may
+     * not be included.
+     * @return current sum
+     */
+    long sum();
+
+    /**
+     * Resets this counter to zero and emits the new sum.
+     */
+    void reset();
+
+    /**
+     * Creates a counter at zero, which emits its sum on a given map as configured by a property.
+     * The counter is not stored by this method, see {@link PropertyMap#getCounter(CounterProperty)}.
+     * A periodic counter starts its emissions immediately.
+     * @param owner map to emit the sum on
+     * @param property counter property
+     * @return new counter
+     */
+    static @NotNull PropertyCounter create(@NotNull PropertyMap owner, @NotNull CounterProperty property) {
+        return new PropertyCounterImpl(owner, property);
+    }
+
+}
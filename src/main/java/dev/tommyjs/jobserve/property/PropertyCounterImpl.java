@@ -0,0 +1,106 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.util.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PropertyCounter} backed by a {@link LongAdder}. Periodic emissions are timed by the
+ * shared {@link TimingWheel} and run on the common fork-join pool, so listeners never hold up the
+ * wheel thread. The task only weakly references the counter, so a counter whose map has been
+ * collected stops being emitted rather than being kept alive by its timer.
+ */
+final class PropertyCounterImpl implements PropertyCounter {
+
+    private final @NotNull PropertyMap owner;
+    private final @NotNull CounterProperty property;
+    private final @NotNull LongAdder adder = new LongAdder();
+    private volatile long lastEmitted;
+
+    PropertyCounterImpl(@NotNull PropertyMap owner, @NotNull CounterProperty property) {
+        this.owner = owner;
+        this.property = property;
+
+        if (property.getPeriodNanos() > 0) {
+            new PeriodicEmission(this, Duration.ofNanos(property.getPeriodNanos())).schedule();
+        }
+    }
+
+    @Override
+    public void increment() {
+        add(1);
+    }
+
+    @Override
+    public void decrement() {
+        add(-1);
+    }
+
+    @Override
+    public void add(long delta) {
+        adder.add(delta);
+
+        int rate = property.getSampleRate();
+        if (rate == 1 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) == 0)) {
+            emit(adder.sum());
+        }
+    }
+
+    @Override
+    public long sum() {
+        return adder.sum();
+    }
+
+    @Override
+    public void reset() {
+        adder.reset();
+        emit(0);
+    }
+
+    private void emit(long sum) {
+        lastEmitted = sum;
+        owner.emit(PropertyMap.UPDATE_COUNTER_KEY, new PropertyCounterUpdate(property.getKey().getIdentifier(), sum));
+    }
+
+    @Override
+    public String toString() {
+        return adder.toString();
+    }
+
+    private static final class PeriodicEmission implements Runnable {
+
+        private final @NotNull WeakReference<PropertyCounterImpl> counter;
+        private final @NotNull Duration period;
+
+        private PeriodicEmission(@NotNull PropertyCounterImpl counter, @NotNull Duration period) {
+            this.counter = new WeakReference<>(counter);
+            this.period = period;
+        }
+
+        private void schedule() {
+            TimingWheel.shared().schedule(() -> ForkJoinPool.commonPool().execute(this), period);
+        }
+
+        @Override
+        public void run() {
+            PropertyCounterImpl counter = this.counter.get();
+            if (counter == null || counter.owner.getProperty(counter.property.getKey()) != counter) {
+                return;
+            }
+
+            long sum = counter.adder.sum();
+            if (sum != counter.lastEmitted) {
+                counter.emit(sum);
+            }
+
+            schedule();
+        }
+
+    }
+
+}
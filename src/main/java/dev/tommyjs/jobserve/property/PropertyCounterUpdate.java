@@ -0,0 +1,6 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+public record PropertyCounterUpdate(@NotNull String key, long sum) {
+}
@@ -0,0 +1,56 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Decides whether writing a property value is a no-op. Writes where the new value is the same as
+ * the stored value are skipped entirely: nothing is stored, and no {@link PropertyUpdate} is
+ * created or emitted.
+ * <p>
+ * A policy can be set for a whole map with {@link PropertyMapOptions#equality(PropertyEquality)},
+ * and overridden for a single key with {@link PropertyKey#withEquality(PropertyEquality)}.
+ * @param <T> property value type
+ */
+@FunctionalInterface
+public interface PropertyEquality<T> {
+
+    /**
+     * Never treats a write as a no-op, so every write is emitted. This is the default.
+     */
+    PropertyEquality<Object> NEVER = (prev, curr) -> false;
+
+    /**
+     * Treats a write of the same instance as a no-op.
+     */
+    PropertyEquality<Object> IDENTITY = (prev, curr) -> prev == curr;
+
+    /**
+     * Treats a write of an equal value, according to {@link Object#equals(Object)}, as a no-op.
+     */
+    PropertyEquality<Object> EQUALS = Objects::equals;
+
+    /**
+     * Checks whether a write replacing one value with another is a no-op. A null value means the
+     * property is not stored.
+     * @param prev currently stored value
+     * @param curr value being written
+     * @return whether the values are the same
+     */
+    boolean isSame(@Nullable T prev, @Nullable T curr);
+
+    /**
+     * Creates a policy treating a write of a value comparing equal to the stored value as a no-op.
+     * Two null values are the same, and a null value is never the same as a stored value.
+     * @param comparator value comparator
+     * @return new equality policy
+     * @param <T> property value type
+     */
+    static <T> @NotNull PropertyEquality<T> comparing(@NotNull Comparator<? super T> comparator) {
+        return (prev, curr) -> prev == null || curr == null ? prev == curr : comparator.compare(prev, curr) == 0;
+    }
+
+}
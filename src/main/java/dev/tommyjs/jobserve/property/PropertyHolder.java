@@ -1,16 +1,23 @@
 package dev.tommyjs.jobserve.property;
 
+import dev.tommyjs.jobserve.observer.EmissionProbe;
+import dev.tommyjs.jobserve.observer.EmissionWaiter;
 import dev.tommyjs.jobserve.observer.Observable;
 import dev.tommyjs.jobserve.observer.ObserverEmitter;
 import dev.tommyjs.jobserve.observer.ObserverSub;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
@@ -160,6 +167,70 @@ public interface PropertyHolder extends Observable {
         getPropertyMap().setProperty(key, value);
     }
 
+    /**
+     * Retrieves a loaded property, loading it if it is not stored.
+     * @param key loading property key
+     * @return future completing with the property value
+     * @see PropertyMap#getPropertyAsync(LoadingPropertyKey)
+     */
+    default <T> @NotNull CompletableFuture<T> getPropertyAsync(@NotNull LoadingPropertyKey<T> key) {
+        return getPropertyMap().getPropertyAsync(key);
+    }
+
+    /**
+     * Retrieves an observable list property, storing a new empty list if it is not stored.
+     * @param property list property
+     * @return stored list
+     * @see PropertyMap#getList(ObservableListProperty)
+     */
+    default <E> @NotNull ObservableList<E> getList(@NotNull ObservableListProperty<E> property) {
+        return getPropertyMap().getList(property);
+    }
+
+    /**
+     * Retrieves an observable map property, storing a new empty map if it is not stored.
+     * @param property map property
+     * @return stored map
+     * @see PropertyMap#getMap(ObservableMapProperty)
+     */
+    default <K, V> @NotNull ObservableMap<K, V> getMap(@NotNull ObservableMapProperty<K, V> property) {
+        return getPropertyMap().getMap(property);
+    }
+
+    /**
+     * Retrieves a counter property, storing a new counter at zero if it is not stored.
+     * @param property counter property
+     * @return stored counter
+     * @see PropertyMap#getCounter(CounterProperty)
+     */
+    default @NotNull PropertyCounter getCounter(@NotNull CounterProperty property) {
+        return getPropertyMap().getCounter(property);
+    }
+
+    /**
+     * Sets an property with a given property key to a given value, which expires after a given
+     * time to live.
+     * @param key property key
+     * @param value new stored value
+     * @param ttl time to live
+     * @see PropertyMap#setProperty(PropertyKey, Object, Duration)
+     */
+    default <T> void setProperty(@NotNull PropertyKey<T> key, @Nullable T value, @NotNull Duration ttl) {
+        getPropertyMap().setProperty(key, value, ttl);
+    }
+
+    /**
+     * Sets a property with a given string key to a given value, which expires after a given time
+     * to live.
+     * @param key the string key identifying the property
+     * @param value the new stored value, or null to remove the property
+     * @param ttl time to live
+     * @see PropertyMap#setProperty(String, Object, Duration)
+     */
+    default void setProperty(@NotNull String key, @Nullable Object value, @NotNull Duration ttl) {
+        getPropertyMap().setProperty(key, value, ttl);
+    }
+
     /**
      * Clears an property with a given property key. This action is equivalent to calling
      * {@link #setProperty(PropertyKey, Object)} with {@code null}.
@@ -246,6 +317,18 @@ public interface PropertyHolder extends Observable {
         return getPropertyMap().updatePropertyAndGet(key, function);
     }
 
+    /**
+     * Atomically updates several properties together, emitting a single {@link PropertyBatchUpdate}.
+     * @param keys property keys to lock and update
+     * @param function function from a view of the current values to the changes to apply
+     * @return applied updates
+     * @throws IllegalArgumentException if the changes include a property not in the given keys
+     * @see PropertyMap#updateAll(Set, Function)
+     */
+    default @NotNull PropertyBatchUpdate updateProperties(@NotNull Set<PropertyKey<?>> keys, @NotNull Function<PropertyView, PropertyChanges> function) {
+        return getPropertyMap().updateAll(keys, function);
+    }
+
     /**
      * Gets an property from a given property key as an optional. The optional will be empty
      * if the value is not stored.
@@ -298,12 +381,15 @@ public interface PropertyHolder extends Observable {
     }
 
     /**
-     * Subscribes to mutations of all properties.
+     * Subscribes to mutations of all properties. Updates from a {@link PropertyBatchUpdate} are
+     * passed to the callback one at a time.
      * @param consumer callback
      * @return observer subscription
      */
     default @NotNull ObserverSub observe(@NotNull Consumer<PropertyUpdate> consumer) {
-        return observe(PropertyMap.UPDATE_PROPERTY_KEY, consumer);
+        ObserverSub single = observe(PropertyMap.UPDATE_PROPERTY_KEY, consumer);
+        ObserverSub batch = observe(PropertyMap.UPDATE_PROPERTIES_KEY, update -> update.updates().forEach(consumer));
+        return ObserverSub.composite(single, batch);
     }
 
     /**
@@ -313,7 +399,7 @@ public interface PropertyHolder extends Observable {
      * @return observer subscription
      */
     default @NotNull ObserverSub observe(@NotNull String key, @NotNull BiConsumer<Object, Object> consumer) {
-        return observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> {
+        return observe(update -> {
             if (update.key().equals(key)) {
                 consumer.accept(update.prev(), update.curr());
             }
@@ -331,4 +417,81 @@ public interface PropertyHolder extends Observable {
         return observe(key.getIdentifier(), (BiConsumer<Object, Object>) consumer);
     }
 
+    /**
+     * Subscribes to mutations of any of a set of properties. The consumer is called with the keys
+     * which changed, once per single update and once per {@link PropertyBatchUpdate} changing at
+     * least one of the keys. Membership is tested against a {@link PropertyKeySet} bitmap, so the
+     * cost of an update does not grow with the number of keys observed.
+     * @param keys property keys to observe
+     * @param consumer callback given the changed keys
+     * @return observer subscription
+     */
+    default @NotNull ObserverSub observeAny(@NotNull Set<PropertyKey<?>> keys, @NotNull Consumer<PropertyKeySet> consumer) {
+        PropertyKeySet observed = PropertyKeySet.of(keys);
+        ObserverSub single = observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> {
+            PropertyKeySet changed = observed.changedBy(update);
+            if (changed != null) {
+                consumer.accept(changed);
+            }
+        });
+
+        ObserverSub batch = observe(PropertyMap.UPDATE_PROPERTIES_KEY, update -> {
+            PropertyKeySet changed = observed.changedBy(update);
+            if (changed != null) {
+                consumer.accept(changed);
+            }
+        });
+
+        return ObserverSub.composite(single, batch);
+    }
+
+    /**
+     * Blocks the current thread until a property matches a predicate, and returns the matching
+     * value. If the current value already matches, it is returned immediately. Otherwise, every
+     * subsequent update of the property, including updates within a {@link PropertyBatchUpdate},
+     * is tested on the updating thread. A null value means the property is not stored.
+     * @param key property key
+     * @param predicate predicate the property value must match
+     * @param timeout maximum duration to wait
+     * @return matching property value
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws TimeoutException if the property did not match in time
+     * @see Observable#await
+     */
+    @SuppressWarnings("unchecked")
+    default <T> @Nullable T awaitProperty(@NotNull PropertyKey<T> key, @NotNull Predicate<@Nullable T> predicate, @NotNull Duration timeout) throws InterruptedException, TimeoutException {
+        String identifier = key.getIdentifier();
+        EmissionWaiter waiter = new EmissionWaiter();
+        EmissionProbe single = value -> {
+            PropertyUpdate update = (PropertyUpdate) value;
+            if (!waiter.isDone() && update.key().equals(identifier) && predicate.test((T) update.curr())) {
+                waiter.complete(update.curr());
+            }
+        };
+
+        EmissionProbe batch = value -> {
+            for (PropertyUpdate update : ((PropertyBatchUpdate) value).updates()) {
+                if (!waiter.isDone() && update.key().equals(identifier) && predicate.test((T) update.curr())) {
+                    waiter.complete(update.curr());
+                }
+            }
+        };
+
+        ObserverEmitter emitter = getEmitter();
+        ObserverSub subscription = ObserverSub.composite(
+            emitter.attachWaiter(PropertyMap.UPDATE_PROPERTY_KEY, waiter, single),
+            emitter.attachWaiter(PropertyMap.UPDATE_PROPERTIES_KEY, waiter, batch)
+        );
+        try {
+            T current = getProperty(key);
+            if (predicate.test(current)) {
+                return current;
+            }
+
+            return (T) waiter.await(timeout);
+        } finally {
+            subscription.cancel();
+        }
+    }
+
 }
@@ -0,0 +1,27 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Operations on populations of {@link PropertyHolder}s.
+ */
+public final class PropertyHolders {
+
+    private PropertyHolders() {
+
+    }
+
+    /**
+     * Creates a bulk operation over a collection of holders, which runs in parallel on the common
+     * {@link java.util.concurrent.ForkJoinPool} unless another pool is given. The collection must
+     * not be modified while an operation is running.
+     * @param holders property holders
+     * @return new bulk operation
+     */
+    public static @NotNull BulkOperation bulk(@NotNull Collection<? extends PropertyHolder> holders) {
+        return BulkOperation.create(holders);
+    }
+
+}
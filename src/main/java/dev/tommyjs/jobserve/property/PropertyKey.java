@@ -2,19 +2,28 @@ package dev.tommyjs.jobserve.property;
 
 import com.google.common.reflect.TypeToken;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class PropertyKey<T> {
 
     private static final AtomicInteger ID_COUNTER = new AtomicInteger(0);
+    private static final AtomicInteger ORDINAL_COUNTER = new AtomicInteger(0);
+    private static final Map<String, Integer> ORDINALS = new ConcurrentHashMap<>();
 
     private final @NotNull String identifier;
     private final @NotNull TypeToken<? extends T> type;
+    private final @Nullable PropertyEquality<? super T> equality;
+    private final int ordinal;
 
-    private PropertyKey(@NotNull String identifier, @NotNull TypeToken<? extends T> type) {
+    private PropertyKey(@NotNull String identifier, @NotNull TypeToken<? extends T> type, @Nullable PropertyEquality<? super T> equality) {
         this.identifier = identifier;
         this.type = type;
+        this.equality = equality;
+        this.ordinal = ORDINALS.computeIfAbsent(identifier, id -> ORDINAL_COUNTER.getAndIncrement());
     }
 
     public @NotNull String getIdentifier() {
@@ -25,12 +34,45 @@ public class PropertyKey<T> {
         return type;
     }
 
+    /**
+     * Returns the ordinal of this key. Ordinals are dense and assigned per identifier in
+     * registration order, so all keys for the same property share an ordinal.
+     * @return key ordinal
+     * @see PropertyKeySet
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Returns the equality policy of this key, which overrides the policy of the map.
+     * @return equality policy, or null to use the policy of the map
+     */
+    public @Nullable PropertyEquality<? super T> getEquality() {
+        return equality;
+    }
+
+    /**
+     * Returns a key for the same property, with an equality policy used to suppress no-op writes
+     * made through the returned key. Writes by string identifier always use the policy of the map.
+     * @param equality equality policy
+     * @return new property key
+     */
+    public @NotNull PropertyKey<T> withEquality(@NotNull PropertyEquality<? super T> equality) {
+        return new PropertyKey<>(identifier, type, equality);
+    }
+
+    static int ordinal(@NotNull String identifier) {
+        Integer ordinal = ORDINALS.get(identifier);
+        return ordinal == null ? -1 : ordinal;
+    }
+
     public static <T> @NotNull PropertyKey<T> register(@NotNull String identifier, @NotNull Class<? extends T> type) {
-        return new PropertyKey<>(identifier, TypeToken.of(type));
+        return new PropertyKey<>(identifier, TypeToken.of(type), null);
     }
 
     public static <T> @NotNull PropertyKey<T> register(@NotNull String identifier, @NotNull TypeToken<? extends T> type) {
-        return new PropertyKey<>(identifier, type);
+        return new PropertyKey<>(identifier, type, null);
     }
 
     public static <T> @NotNull PropertyKey<T> register(@NotNull Class<? extends T> type) {
@@ -0,0 +1,165 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable set of {@link PropertyKey}s, stored as a bitmap of key ordinals. Membership tests
+ * and intersections are a few bitwise operations, regardless of the number of keys.
+ * @see PropertyKey#getOrdinal()
+ */
+public final class PropertyKeySet {
+
+    private static final PropertyKeySet EMPTY = new PropertyKeySet(new long[0]);
+
+    private final long @NotNull [] words;
+
+    private PropertyKeySet(long @NotNull [] words) {
+        this.words = words;
+    }
+
+    /**
+     * Checks whether a key is in this set.
+     * @param key property key
+     * @return whether the key is in this set
+     */
+    public boolean contains(@NotNull PropertyKey<?> key) {
+        return contains(key.getOrdinal());
+    }
+
+    /**
+     * Checks whether a key is in this set by its identifier.
+     * @param key the string key identifying the property
+     * @return whether the key is in this set
+     */
+    public boolean contains(@NotNull String key) {
+        return contains(PropertyKey.ordinal(key));
+    }
+
+    private boolean contains(int ordinal) {
+        int word = ordinal >>> 6;
+        return ordinal >= 0 && word < words.length && (words[word] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Checks whether this set shares any key with another set.
+     * @param other other key set
+     * @return whether the sets intersect
+     */
+    public boolean intersects(@NotNull PropertyKeySet other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the keys of this set changed by an update.
+     * @param update property update
+     * @return changed keys, or null if no key of this set changed
+     */
+    public @Nullable PropertyKeySet changedBy(@NotNull PropertyUpdate update) {
+        int ordinal = PropertyKey.ordinal(update.key());
+        if (!contains(ordinal)) {
+            return null;
+        }
+
+        long[] changed = new long[(ordinal >>> 6) + 1];
+        changed[ordinal >>> 6] = 1L << ordinal;
+        return new PropertyKeySet(changed);
+    }
+
+    /**
+     * Returns the keys of this set changed by a batch of updates.
+     * @param batch batch update
+     * @return changed keys, or null if no key of this set changed
+     */
+    public @Nullable PropertyKeySet changedBy(@NotNull PropertyBatchUpdate batch) {
+        long[] changed = null;
+        for (PropertyUpdate update : batch.updates()) {
+            int ordinal = PropertyKey.ordinal(update.key());
+            if (contains(ordinal)) {
+                if (changed == null) {
+                    changed = new long[words.length];
+                }
+
+                changed[ordinal >>> 6] |= 1L << ordinal;
+            }
+        }
+
+        return changed == null ? null : new PropertyKeySet(trim(changed));
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PropertyKeySet other && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    /**
+     * Creates a key set from a collection of keys.
+     * @param keys property keys
+     * @return new key set
+     */
+    public static @NotNull PropertyKeySet of(@NotNull Collection<? extends PropertyKey<?>> keys) {
+        if (keys.isEmpty()) {
+            return EMPTY;
+        }
+
+        int max = 0;
+        for (PropertyKey<?> key : keys) {
+            max = Math.max(max, key.getOrdinal());
+        }
+
+        long[] words = new long[(max >>> 6) + 1];
+        for (PropertyKey<?> key : keys) {
+            words[key.getOrdinal() >>> 6] |= 1L << key.getOrdinal();
+        }
+
+        return new PropertyKeySet(words);
+    }
+
+    /**
+     * Creates a key set from the given keys.
+     * @param keys property keys
+     * @return new key set
+     */
+    public static @NotNull PropertyKeySet of(@NotNull PropertyKey<?> @NotNull ... keys) {
+        return of(List.of(keys));
+    }
+
+    private static long @NotNull [] trim(long @NotNull [] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+
+        return length == words.length ? words : Arrays.copyOf(words, length);
+    }
+
+}
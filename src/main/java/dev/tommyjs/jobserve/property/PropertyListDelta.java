@@ -0,0 +1,7 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public record PropertyListDelta(@NotNull String key, @NotNull DeltaType type, int index, @Nullable Object prev, @Nullable Object curr, long version) {
+}
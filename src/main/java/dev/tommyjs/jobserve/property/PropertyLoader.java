@@ -0,0 +1,22 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronously loads the value of a {@link LoadingPropertyKey} for a property map.
+ * @param <T> property value type
+ */
+@FunctionalInterface
+public interface PropertyLoader<T> {
+
+    /**
+     * Starts loading the value of a property. This method should not block, as it is called on the
+     * thread reading the property.
+     * @param map property map the value is loaded for
+     * @return future completing with the loaded value, or null if there is no value
+     */
+    @NotNull CompletableFuture<T> load(@NotNull PropertyMap map);
+
+}
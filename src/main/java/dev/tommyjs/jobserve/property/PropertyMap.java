@@ -4,12 +4,19 @@ import com.google.common.reflect.TypeToken;
 import dev.tommyjs.jobserve.observer.Observable;
 import dev.tommyjs.jobserve.observer.ObserverEmitter;
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.property.impl.ConfinedPropertyMapImpl;
 import dev.tommyjs.jobserve.property.impl.PropertyMapImpl;
+import dev.tommyjs.jobserve.property.impl.SeqLockPropertyMapImpl;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -21,6 +28,30 @@ public interface PropertyMap extends Observable {
 
     ObserverKey<PropertyUpdate> UPDATE_PROPERTY_KEY = ObserverKey.register(new TypeToken<>(){});
 
+    ObserverKey<PropertyBatchUpdate> UPDATE_PROPERTIES_KEY = ObserverKey.register(new TypeToken<>(){});
+
+    /**
+     * Key on which maps with flyweight updates emit reusable update views.
+     * @see PropertyMapOptions#flyweightUpdates(boolean)
+     */
+    ObserverKey<PropertyUpdateView> UPDATE_PROPERTY_VIEW_KEY = ObserverKey.register(new TypeToken<>(){});
+
+    /**
+     * Key on which {@link ObservableList} properties emit their mutations.
+     */
+    ObserverKey<PropertyListDelta> UPDATE_LIST_KEY = ObserverKey.register(new TypeToken<>(){});
+
+    /**
+     * Key on which {@link ObservableMap} properties emit their mutations.
+     */
+    ObserverKey<PropertyMapDelta> UPDATE_MAP_KEY = ObserverKey.register(new TypeToken<>(){});
+
+    /**
+     * Key on which {@link PropertyCounter} properties emit their sums.
+     * @see CounterProperty
+     */
+    ObserverKey<PropertyCounterUpdate> UPDATE_COUNTER_KEY = ObserverKey.register(new TypeToken<>(){});
+
     /**
      * Retrieves an property from a given property key.
      * @param key property key
@@ -76,7 +107,8 @@ public interface PropertyMap extends Observable {
     /**
      * Retrieves an property from a given property key, but calls default value if the
      * property is not stored. This method will set the default value as the stored value
-     * if the property is not stored.
+     * if the property is not stored. The supplier is called at most once, with the property
+     * locked, so it should not write other properties.
      * @param key property key
      * @param supplier default value supplier to call and return if not stored
      * @return final property value, or default value if not stored
@@ -129,6 +161,95 @@ public interface PropertyMap extends Observable {
      */
     void setProperty(@NotNull String key, @Nullable Object value);
 
+    /**
+     * Retrieves a loaded property, loading it if it is not stored. Concurrent calls for a property
+     * which is not stored share a single load, and the loader runs without holding any lock of
+     * this map, so slow loads never block other properties. Once loaded, the value is stored and
+     * emitted like any other write, and admitted to the cache of the key, which may evict another
+     * loaded property from any map sharing the cache.
+     * <p>
+     * If the key refreshes values ahead of time, reading a value older than the refresh age
+     * returns it immediately and reloads it in the background.
+     * <p>
+     * The default implementation starts a new load on every read of a property which is not
+     * stored, and neither refreshes values nor admits them to the cache of the key.
+     * @param key loading property key
+     * @return future completing with the property value
+     */
+    default <T> @NotNull CompletableFuture<T> getPropertyAsync(@NotNull LoadingPropertyKey<T> key) {
+        T value = getProperty(key.getKey());
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        return key.getLoader().load(this).thenApply(loaded -> {
+            setProperty(key.getKey(), loaded);
+            return loaded;
+        });
+    }
+
+    /**
+     * Retrieves an observable list property, storing a new empty list if it is not stored. The list
+     * is mutated in place, and each mutation emits a {@link PropertyListDelta} on
+     * {@link #UPDATE_LIST_KEY}, at a cost independent of the size of the list. Only storing the
+     * list emits a {@link PropertyUpdate}.
+     * @param property list property
+     * @return stored list
+     */
+    default <E> @NotNull ObservableList<E> getList(@NotNull ObservableListProperty<E> property) {
+        return getPropertyOrCreateDefault(property.getKey(), () -> ObservableList.create(this, property));
+    }
+
+    /**
+     * Retrieves an observable map property, storing a new empty map if it is not stored. The map is
+     * mutated in place, and each mutation emits a {@link PropertyMapDelta} on
+     * {@link #UPDATE_MAP_KEY}, at a cost independent of the size of the map. Only storing the map
+     * emits a {@link PropertyUpdate}.
+     * @param property map property
+     * @return stored map
+     */
+    default <K, V> @NotNull ObservableMap<K, V> getMap(@NotNull ObservableMapProperty<K, V> property) {
+        return getPropertyOrCreateDefault(property.getKey(), () -> ObservableMap.create(this, property));
+    }
+
+    /**
+     * Retrieves a counter property, storing a new counter at zero if it is not stored. Changes to
+     * the counter never emit a {@link PropertyUpdate}, and only emit on {@link #UPDATE_COUNTER_KEY}
+     * as configured by the given property.
+     * @param property counter property
+     * @return stored counter
+     */
+    default @NotNull PropertyCounter getCounter(@NotNull CounterProperty property) {
+        return getPropertyOrCreateDefault(property.getKey(), () -> PropertyCounter.create(this, property));
+    }
+
+    /**
+     * Sets an property with a given property key to a given value, which expires after a given
+     * time to live. Once expired, the property is no longer stored, and a {@link PropertyUpdate}
+     * to null is emitted. Reads never return an expired value, although the removal and its
+     * emission may lag behind the deadline by up to one tick of the shared timing wheel, after
+     * which they run on the common fork-join pool. Any later write of the property discards the
+     * deadline.
+     * @param key property key
+     * @param value new stored value
+     * @param ttl time to live
+     * @throws IllegalArgumentException if the time to live is not positive
+     */
+    default <T> void setProperty(@NotNull PropertyKey<T> key, @Nullable T value, @NotNull Duration ttl) {
+        setProperty(key.getIdentifier(), value, ttl);
+    }
+
+    /**
+     * Sets a property with a given string key to a given value, which expires after a given time
+     * to live.
+     * @param key the string key identifying the property
+     * @param value the new stored value, or null to remove the property
+     * @param ttl time to live
+     * @throws IllegalArgumentException if the time to live is not positive
+     * @see #setProperty(PropertyKey, Object, Duration)
+     */
+    void setProperty(@NotNull String key, @Nullable Object value, @NotNull Duration ttl);
+
     /**
      * Clears an property with a given property key. This action is equivalent to calling
      * {@link #setProperty(PropertyKey, Object)} with {@code null}.
@@ -169,7 +290,9 @@ public interface PropertyMap extends Observable {
 
     /**
      * Gets an property from a given property key, and applies a function to it before storing
-     * the value returned by the function.
+     * the value returned by the function. The function is applied exactly once, with the property
+     * locked, so it should not write other properties. Doing so from two threads in opposite order,
+     * even across maps, may deadlock, since maps share their locks.
      * @param key property key
      * @param function function to apply to the previous value to obtain the new stored value
      * @return previous stored value
@@ -187,7 +310,8 @@ public interface PropertyMap extends Observable {
 
     /**
      * Gets an property from a given property key, and applies a function to it before storing
-     * the value returned by the function.
+     * the value returned by the function. The function is applied exactly once, with the property
+     * locked, so it should not write other properties.
      * @param key property key
      * @param function function to apply to the previous value to obtain the new stored value
      * @return final stored value
@@ -203,6 +327,23 @@ public interface PropertyMap extends Observable {
      */
     @Nullable Object updatePropertyAndGet(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function);
 
+    /**
+     * Atomically updates several properties together. The function is given a view of the values
+     * of the properties, and runs without any lock held. The changes are then applied with the
+     * given properties locked, only if none of them changed since the view was taken, and the
+     * function is applied again otherwise. The function therefore always acts on a consistent view
+     * of the values, no other mutation of these properties can interleave with the update, and
+     * under contention the function may be applied more than once. Readers are never blocked.
+     * <p>
+     * Rather than one emission per property, a single {@link PropertyBatchUpdate} is emitted on
+     * {@link #UPDATE_PROPERTIES_KEY} after all changes have been applied, if there were any.
+     * @param keys property keys to lock and update
+     * @param function function from a view of the current values to the changes to apply
+     * @return applied updates
+     * @throws IllegalArgumentException if the changes include a property not in the given keys
+     */
+    @NotNull PropertyBatchUpdate updateAll(@NotNull Set<PropertyKey<?>> keys, @NotNull Function<PropertyView, PropertyChanges> function);
+
     /**
      * Gets an property from a given property key as an optional. The optional will be empty
      * if the value is not stored.
@@ -236,6 +377,18 @@ public interface PropertyMap extends Observable {
      */
     void clear();
 
+    /**
+     * Estimates the heap usage of this map, including its emitter if created, and lists the
+     * stored properties. The report is a snapshot, and may be inconsistent with concurrent writes.
+     * <p>
+     * The default implementation estimates the storage as a hash map, and omits the emitter.
+     * @return map footprint
+     */
+    default @NotNull PropertyMapFootprint footprint() {
+        List<String> keys = getProperties().stream().map(PropertyEntry::key).toList();
+        return new PropertyMapFootprint(MemoryEstimates.hashMap(keys.size()), keys, null);
+    }
+
     /**
      * Creates a new default {@link PropertyMap} instance.
      * @return new property map
@@ -252,4 +405,31 @@ public interface PropertyMap extends Observable {
         return new PropertyMapImpl(emitter);
     }
 
+    /**
+     * Creates a new {@link PropertyMap} instance with the specified options.
+     * @param options property map options
+     * @return new property map
+     */
+    static @NotNull PropertyMap create(@NotNull PropertyMapOptions options) {
+        return options.isReadOptimized() ? new SeqLockPropertyMapImpl(null, options) : new PropertyMapImpl(null, options);
+    }
+
+    /**
+     * Creates a new {@link PropertyMap} instance with a specified emitter and options.
+     * @param emitter observer emitter
+     * @param options property map options
+     * @return new property map
+     */
+    static @NotNull PropertyMap create(@NotNull ObserverEmitter emitter, @NotNull PropertyMapOptions options) {
+        return options.isReadOptimized() ? new SeqLockPropertyMapImpl(emitter, options) : new PropertyMapImpl(emitter, options);
+    }
+
+    /**
+     * Creates a new {@link ConfinedPropertyMap} instance, owned by the current thread.
+     * @return new confined property map
+     */
+    static @NotNull ConfinedPropertyMap createConfined() {
+        return new ConfinedPropertyMapImpl();
+    }
+
 }
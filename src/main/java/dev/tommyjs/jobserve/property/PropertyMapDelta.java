@@ -0,0 +1,7 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public record PropertyMapDelta(@NotNull String key, @NotNull DeltaType type, @NotNull Object entryKey, @Nullable Object prev, @Nullable Object curr, long version) {
+}
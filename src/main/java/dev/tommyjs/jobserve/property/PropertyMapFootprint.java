@@ -0,0 +1,30 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.observer.EmitterFootprint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Estimated heap usage of a {@link PropertyMap}, from {@link PropertyMap#footprint()}. Property
+ * values are not included, only the storage holding them.
+ * @param estimatedBytes estimated bytes retained by the map storage, excluding the emitter
+ * @param keys identifiers of the stored properties
+ * @param emitter footprint of the emitter, or null if the emitter has not been created
+ */
+public record PropertyMapFootprint(long estimatedBytes, @NotNull List<String> keys, @Nullable EmitterFootprint emitter) {
+
+    public int propertyCount() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the estimated bytes retained by the map storage and its emitter.
+     * @return total estimated bytes
+     */
+    public long totalBytes() {
+        return emitter == null ? estimatedBytes : estimatedBytes + emitter.estimatedBytes();
+    }
+
+}
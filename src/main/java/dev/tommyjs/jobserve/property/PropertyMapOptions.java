@@ -0,0 +1,103 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable configuration for {@link PropertyMap} instances created with
+ * {@link PropertyMap#create(PropertyMapOptions)}. Every modifier returns a new options instance.
+ */
+public final class PropertyMapOptions {
+
+    private static final PropertyMapOptions DEFAULTS = new PropertyMapOptions(false, PropertyEquality.NEVER, null, false);
+
+    private final boolean readOptimized;
+    private final @NotNull PropertyEquality<Object> equality;
+    private final @Nullable UpdateScheduler scheduler;
+    private final boolean flyweightUpdates;
+
+    private PropertyMapOptions(boolean readOptimized, @NotNull PropertyEquality<Object> equality, @Nullable UpdateScheduler scheduler,
+                               boolean flyweightUpdates) {
+        this.readOptimized = readOptimized;
+        this.equality = equality;
+        this.scheduler = scheduler;
+        this.flyweightUpdates = flyweightUpdates;
+    }
+
+    public boolean isReadOptimized() {
+        return readOptimized;
+    }
+
+    public @NotNull PropertyEquality<Object> getEquality() {
+        return equality;
+    }
+
+    public @Nullable UpdateScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public boolean isFlyweightUpdates() {
+        return flyweightUpdates;
+    }
+
+    /**
+     * Selects the read optimized implementation. Reads are served from a compact open addressing
+     * table through an optimistic sequence lock, with no CAS on the read path, at the cost of
+     * serializing all writes to the map. Best suited to large numbers of small maps that are read
+     * far more often than they are written. For a few hot maps, the default implementation reads
+     * at least as fast.
+     * @param readOptimized whether to use the read optimized implementation
+     * @return new options
+     */
+    public @NotNull PropertyMapOptions readOptimized(boolean readOptimized) {
+        return new PropertyMapOptions(readOptimized, equality, scheduler, flyweightUpdates);
+    }
+
+    /**
+     * Sets the equality policy used to suppress no-op writes, for all keys without a policy of
+     * their own. Suppressed writes are not stored and not emitted, which also applies to writes
+     * made by {@link PropertyMap#copyInto(PropertyMap)} into a map with these options.
+     * @param equality equality policy
+     * @return new options
+     * @see PropertyKey#withEquality(PropertyEquality)
+     */
+    public @NotNull PropertyMapOptions equality(@NotNull PropertyEquality<Object> equality) {
+        return new PropertyMapOptions(readOptimized, equality, scheduler, flyweightUpdates);
+    }
+
+    /**
+     * Defers update emissions to a scheduler. Writes only mark the written properties as changed,
+     * and updates are emitted when the scheduler is flushed.
+     * @param scheduler update scheduler
+     * @return new options
+     * @see UpdateScheduler
+     */
+    public @NotNull PropertyMapOptions deferUpdates(@NotNull UpdateScheduler scheduler) {
+        return new PropertyMapOptions(readOptimized, equality, scheduler, flyweightUpdates);
+    }
+
+    /**
+     * Delivers single property updates as reusable {@link PropertyUpdateView}s on
+     * {@link PropertyMap#UPDATE_PROPERTY_VIEW_KEY}, taken from a per thread stack, so emitting an
+     * update does not allocate. A {@link PropertyUpdate} is then only created and emitted on
+     * {@link PropertyMap#UPDATE_PROPERTY_KEY} if that key is observed, and each key is only
+     * emitted on if observed.
+     * <p>
+     * Views are only valid until the subscriber returns, so they must not be delivered through
+     * emitters which call subscribers later, such as cascading emitters.
+     * @param flyweightUpdates whether to emit reusable update views
+     * @return new options
+     */
+    public @NotNull PropertyMapOptions flyweightUpdates(boolean flyweightUpdates) {
+        return new PropertyMapOptions(readOptimized, equality, scheduler, flyweightUpdates);
+    }
+
+    /**
+     * Returns the default options, matching the behaviour of {@link PropertyMap#create()}.
+     * @return default options
+     */
+    public static @NotNull PropertyMapOptions defaults() {
+        return DEFAULTS;
+    }
+
+}
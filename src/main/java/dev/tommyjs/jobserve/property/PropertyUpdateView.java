@@ -0,0 +1,28 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read only view of a property update. Views emitted on {@link PropertyMap#UPDATE_PROPERTY_VIEW_KEY}
+ * are reused, and are only valid until the subscriber returns, so subscribers wanting to keep an
+ * update must {@link #copy()} it.
+ * @see PropertyMapOptions#flyweightUpdates(boolean)
+ */
+public interface PropertyUpdateView {
+
+    @NotNull String key();
+
+    @Nullable Object prev();
+
+    @Nullable Object curr();
+
+    /**
+     * Copies this view into an immutable update which can be kept.
+     * @return property update
+     */
+    default @NotNull PropertyUpdate copy() {
+        return new PropertyUpdate(key(), prev(), curr());
+    }
+
+}
@@ -0,0 +1,34 @@
+package dev.tommyjs.jobserve.property;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read access to a fixed set of properties during a {@link PropertyMap#updateAll} operation. All
+ * values returned by a view are consistent with each other, as none of the viewed properties can
+ * be mutated by other threads while the view is in use.
+ */
+public interface PropertyView {
+
+    /**
+     * Retrieves a property from a given property key.
+     * @param key property key
+     * @return current property value, or null if not stored
+     * @throws IllegalArgumentException if the key is not part of this view
+     */
+    <T> @Nullable T getProperty(@NotNull PropertyKey<T> key);
+
+    /**
+     * Retrieves a property from a given property key, but returns a default value if the
+     * property is not stored.
+     * @param key property key
+     * @param defaultValue default value to return if not stored
+     * @return current property value, or default value if not stored
+     * @throws IllegalArgumentException if the key is not part of this view
+     */
+    default <T> @NotNull T getPropertyOrDefault(@NotNull PropertyKey<T> key, @NotNull T defaultValue) {
+        T value = getProperty(key);
+        return value == null ? defaultValue : value;
+    }
+
+}
@@ -0,0 +1,41 @@
+package dev.tommyjs.jobserve.property;
+
+import dev.tommyjs.jobserve.property.impl.UpdateSchedulerImpl;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Defers the update emissions of property maps until {@link #flush()} is called, typically once
+ * per tick of a fixed rate loop. Maps using a scheduler, see
+ * {@link PropertyMapOptions#deferUpdates(UpdateScheduler)}, only record which properties changed
+ * on write, and a flush emits a single {@link PropertyUpdate} per changed property of each map,
+ * from the value before the first write since the last flush to the current value.
+ * <p>
+ * Batch updates are flushed as individual updates on {@link PropertyMap#UPDATE_PROPERTY_KEY},
+ * and properties which were changed back to the same instance, or to a value the equality policy
+ * of their key treats as the same, are not emitted at all.
+ */
+public interface UpdateScheduler {
+
+    /**
+     * Emits the deferred updates of every map changed since the last flush, on the current
+     * thread. The cost of a flush is proportional to the number of changed maps and properties,
+     * not to the number of writes. Writes made concurrently with, or by subscribers during, a
+     * flush are either included in it or deferred to the next flush.
+     */
+    void flush();
+
+    /**
+     * Returns the number of maps with deferred updates.
+     * @return number of changed maps
+     */
+    int getPendingCount();
+
+    /**
+     * Creates a new update scheduler.
+     * @return new update scheduler
+     */
+    static @NotNull UpdateScheduler create() {
+        return new UpdateSchedulerImpl();
+    }
+
+}
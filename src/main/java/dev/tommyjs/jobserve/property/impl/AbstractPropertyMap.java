@@ -0,0 +1,1040 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.property.*;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
+import dev.tommyjs.jobserve.util.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Base implementation of {@link PropertyMap}, built on a small set of storage primitives. Every
+ * mutation of a key happens between {@link #lock(String)} and {@link #unlock(String, long)} for
+ * that key, so implementations only need to make {@link #write(String, Object)} safe against
+ * concurrent writes of other keys, and {@link #read(String)} safe against any concurrent write.
+ * Emissions always happen after the key has been unlocked.
+ * <p>
+ * Update functions and default suppliers of single key operations run with the key locked, so
+ * each is applied at most once per call, and nothing else can write the property in between.
+ * Updates of several keys and equality policies instead work from a snapshot read without
+ * locking, then lock only to check that every property still holds the value read, storing the
+ * new values if so and retrying otherwise.
+ * <p>
+ * Writes judged to be no-ops by the {@link PropertyEquality} of the key, or of the map, are
+ * detected while the key is locked, and skipped before any {@link PropertyUpdate} is created.
+ * <p>
+ * Deadlines of expiring properties are kept beside the storage, in a table which is only created
+ * once a property is first given a time to live, so maps without expiring properties pay a single
+ * null check per access. Reads treat a property past its deadline as not stored, and the removal
+ * itself is timed by the shared {@link TimingWheel}, which hands it to the common fork-join pool,
+ * so neither the key lock nor the listeners of the removal ever hold up the wheel thread. Loaded
+ * properties are tracked in a similar lazily created table, holding the in-flight load and cache
+ * entry of each property.
+ * <p>
+ * Maps deferring their updates to an {@link UpdateScheduler} keep a lazily created table of
+ * changed properties, recording the value before the first write of each property since the last
+ * flush along with the equality policy of its key, and enqueue themselves on the scheduler once per
+ * flush.
+ */
+@SuppressWarnings("unchecked")
+public abstract class AbstractPropertyMap implements PropertyMap, Observable {
+
+    private static final VarHandle EMITTER;
+    private static final VarHandle EXPIRIES;
+    private static final VarHandle LOADED;
+    private static final VarHandle CHANGED;
+    private static final VarHandle SCHEDULED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            EMITTER = lookup.findVarHandle(AbstractPropertyMap.class, "emitter", ObserverEmitter.class);
+            EXPIRIES = lookup.findVarHandle(AbstractPropertyMap.class, "expiries", Map.class);
+            LOADED = lookup.findVarHandle(AbstractPropertyMap.class, "loaded", Map.class);
+            CHANGED = lookup.findVarHandle(AbstractPropertyMap.class, "changed", Map.class);
+            SCHEDULED = lookup.findVarHandle(AbstractPropertyMap.class, "scheduled", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final @NotNull PropertyEquality<Object> equality;
+    private final @Nullable UpdateSchedulerImpl scheduler;
+    private final boolean flyweightUpdates;
+    private volatile @Nullable ObserverEmitter emitter;
+    private volatile @Nullable Map<String, Expiry> expiries;
+    private volatile @Nullable Map<String, LoadedProperty> loaded;
+    private volatile @Nullable Map<String, Deferred> changed;
+    private volatile boolean scheduled;
+
+    protected AbstractPropertyMap(@Nullable ObserverEmitter emitter) {
+        this(emitter, PropertyMapOptions.defaults());
+    }
+
+    protected AbstractPropertyMap(@Nullable ObserverEmitter emitter, @NotNull PropertyMapOptions options) {
+        this.emitter = emitter;
+        this.equality = options.getEquality();
+        this.scheduler = (UpdateSchedulerImpl) options.getScheduler();
+        this.flyweightUpdates = options.isFlyweightUpdates();
+    }
+
+    /**
+     * Reads the current value of a property. May be called with or without the key locked.
+     * @param key property identifier
+     * @return current value, or null if not stored
+     */
+    protected abstract @Nullable Object read(@NotNull String key);
+
+    /**
+     * Stores or removes the value of a property. Only called with the key locked.
+     * @param key property identifier
+     * @param value new value, or null to remove
+     * @return previous value, or null if not stored
+     */
+    protected abstract @Nullable Object write(@NotNull String key, @Nullable Object value);
+
+    /**
+     * Acquires exclusive mutation rights for a key.
+     * @param key property identifier
+     * @return stamp to pass to {@link #unlock(String, long)}
+     */
+    protected abstract long lock(@NotNull String key);
+
+    protected abstract void unlock(@NotNull String key, long stamp);
+
+    /**
+     * Acquires exclusive mutation rights for several keys at once, without deadlocking against
+     * other callers locking overlapping keys.
+     * @param keys distinct property identifiers
+     * @return action releasing all acquired locks
+     */
+    protected abstract @NotNull Runnable lockAll(@NotNull String @NotNull [] keys);
+
+    /**
+     * Returns an iterator over the stored properties. The iterator does not need to reflect
+     * concurrent modifications and does not need to support removal.
+     * @return entry iterator
+     */
+    protected abstract @NotNull Iterator<Map.Entry<String, Object>> entries();
+
+    protected abstract int propertyCount();
+
+    /**
+     * Estimates the heap usage of this map object and its storage, excluding keys and values.
+     * @return estimated size in bytes
+     */
+    protected abstract long storageFootprint();
+
+    /**
+     * Returns the emitter of this map if it has been created, without creating it.
+     * @return emitter, or null if not created
+     */
+    protected @Nullable ObserverEmitter createdEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Reads the current value of a property, treating a property past its deadline as not stored.
+     * @param key property identifier
+     * @return current value, or null if not stored
+     */
+    protected @Nullable Object load(@NotNull String key) {
+        Object value = read(key);
+        return value != null && isExpired(key, value) ? null : value;
+    }
+
+    /**
+     * Checks whether a stored value is past its deadline, and only awaits removal. Every read,
+     * iteration and count of this class checks values through this method, so maps which never
+     * share the deadline table, such as thread confined maps, may keep their own deadlines by
+     * overriding it together with {@link #hasDeadlines()} and {@link #store(String, Object)}.
+     * @param key property identifier
+     * @param value stored value
+     * @return whether the value has expired
+     */
+    protected boolean isExpired(@NotNull String key, @NotNull Object value) {
+        Map<String, Expiry> expiries = this.expiries;
+        if (expiries == null) {
+            return false;
+        }
+
+        Expiry expiry = expiries.get(key);
+        return expiry != null && expiry.isExpired(value);
+    }
+
+    /**
+     * Checks whether any property may have been given a deadline. Until then, iterating and
+     * counting properties skip the deadline checks.
+     * @return whether deadlines may exist
+     */
+    protected boolean hasDeadlines() {
+        return expiries != null;
+    }
+
+    /**
+     * Iterates over the stored properties, skipping values past their deadline which have not
+     * been removed yet, the same way {@link #load(String)} hides them.
+     * @return entry iterator
+     */
+    private @NotNull Iterator<Map.Entry<String, Object>> liveEntries() {
+        Iterator<Map.Entry<String, Object>> entries = entries();
+        if (!hasDeadlines()) {
+            return entries;
+        }
+
+        return new Iterator<>() {
+
+            private Map.@Nullable Entry<String, Object> next = advance();
+
+            private Map.@Nullable Entry<String, Object> advance() {
+                while (entries.hasNext()) {
+                    Map.Entry<String, Object> entry = entries.next();
+                    if (entry.getValue() != null && !isExpired(entry.getKey(), entry.getValue())) {
+                        return entry;
+                    }
+                }
+
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                Map.Entry<String, Object> entry = next;
+                if (entry == null) {
+                    throw new NoSuchElementException();
+                }
+
+                next = advance();
+                return entry;
+            }
+
+        };
+    }
+
+    private int liveCount() {
+        if (!hasDeadlines()) {
+            return propertyCount();
+        }
+
+        int count = 0;
+        Iterator<Map.Entry<String, Object>> iterator = liveEntries();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Stores or removes the value of a property, discarding its deadline. Only called with the key
+     * locked.
+     * @param key property identifier
+     * @param value new value, or null to remove
+     * @return previous value, or null if not stored or expired
+     */
+    protected @Nullable Object store(@NotNull String key, @Nullable Object value) {
+        Object prev = write(key, value);
+        Map<String, Expiry> expiries = this.expiries;
+        if (expiries != null) {
+            Expiry expiry = expiries.remove(key);
+            if (expiry != null) {
+                expiry.timeout.cancel();
+                if (expiry.isExpired(prev)) {
+                    return null;
+                }
+            }
+        }
+
+        return prev;
+    }
+
+    private @NotNull Map<String, Expiry> expiries() {
+        Map<String, Expiry> expiries = this.expiries;
+        if (expiries == null) {
+            expiries = new ConcurrentHashMap<>();
+            if (!EXPIRIES.compareAndSet(this, null, expiries)) {
+                expiries = this.expiries;
+            }
+        }
+
+        return expiries;
+    }
+
+    @Override
+    public <T> @Nullable T getProperty(@NotNull PropertyKey<T> key) {
+        return (T) getProperty(key.getIdentifier());
+    }
+
+    @Override
+    public @Nullable Object getProperty(@NotNull String key) {
+        return load(key);
+    }
+
+    @Override
+    public <T> @NotNull T getPropertyOrThrow(@NotNull PropertyKey<T> key) {
+        return (T) getPropertyOrThrow(key.getIdentifier());
+    }
+
+    @Override
+    public @NotNull Object getPropertyOrThrow(@NotNull String key) {
+        Object value = load(key);
+        if (value == null) {
+            throw new IllegalStateException("Property not present");
+        } else {
+            return value;
+        }
+    }
+
+    @Override
+    public <T> @NotNull T getPropertyOrDefault(@NotNull PropertyKey<T> key, @NotNull T defaultValue) {
+        return (T) getPropertyOrDefault(key.getIdentifier(), defaultValue);
+    }
+
+    @Override
+    public @NotNull Object getPropertyOrDefault(@NotNull String key, @NotNull Object defaultValue) {
+        Object value = load(key);
+        return value == null ? defaultValue : value;
+    }
+
+    private @NotNull PropertyEquality<Object> equality(@NotNull PropertyKey<?> key) {
+        PropertyEquality<Object> equality = (PropertyEquality<Object>) key.getEquality();
+        return equality == null ? this.equality : equality;
+    }
+
+    @Override
+    public <T> void setProperty(@NotNull PropertyKey<T> key, @Nullable T value) {
+        setProperty(key.getIdentifier(), value, equality(key));
+    }
+
+    @Override
+    public void setProperty(@NotNull String key, @Nullable Object value) {
+        setProperty(key, value, equality);
+    }
+
+    private void setProperty(@NotNull String key, @Nullable Object value, @NotNull PropertyEquality<Object> equality) {
+        Object prev;
+
+        if (equality == PropertyEquality.NEVER) {
+            long stamp = lock(key);
+            try {
+                prev = store(key, value);
+            } finally {
+                unlock(key, stamp);
+            }
+        } else {
+            do {
+                prev = load(key);
+                if (equality.isSame(prev, value)) {
+                    return;
+                }
+            } while (!compareAndStore(key, prev, value));
+        }
+
+        emitUpdate(key, prev, value, equality);
+    }
+
+    /**
+     * Stores a value if a property still holds the value a caller computed it from. Values are
+     * compared by identity, so an expected value read before the property expired no longer
+     * matches once it has expired.
+     * @param key property identifier
+     * @param expected value the new value was computed from
+     * @param value new value, or null to remove
+     * @return whether the value was stored
+     */
+    private boolean compareAndStore(@NotNull String key, @Nullable Object expected, @Nullable Object value) {
+        long stamp = lock(key);
+        try {
+            if (load(key) != expected) {
+                return false;
+            }
+
+            store(key, value);
+            return true;
+        } finally {
+            unlock(key, stamp);
+        }
+    }
+
+    @Override
+    public <T> @NotNull CompletableFuture<T> getPropertyAsync(@NotNull LoadingPropertyKey<T> key) {
+        String identifier = key.getKey().getIdentifier();
+        Object value = load(identifier);
+        Map<String, LoadedProperty> loaded = this.loaded;
+        LoadedProperty property = loaded == null ? null : loaded.get(identifier);
+
+        if (value != null) {
+            if (property != null && property.value == value) {
+                PropertyCache cache = property.cache;
+                if (cache != null) {
+                    cache.touch(property);
+                }
+
+                long refreshAfter = key.getRefreshAfterNanos();
+                if (refreshAfter > 0 && System.nanoTime() - property.loadedAt >= refreshAfter) {
+                    property.load(key);
+                }
+            }
+
+            return CompletableFuture.completedFuture((T) value);
+        }
+
+        if (property == null) {
+            if (loaded == null) {
+                loaded = new ConcurrentHashMap<>();
+                if (!LOADED.compareAndSet(this, null, loaded)) {
+                    loaded = this.loaded;
+                }
+            }
+
+            property = loaded.computeIfAbsent(identifier, LoadedProperty::new);
+        }
+
+        return (CompletableFuture<T>) property.load(key);
+    }
+
+    @Override
+    public void setProperty(@NotNull String key, @Nullable Object value, @NotNull Duration ttl) {
+        if (value == null) {
+            setProperty(key, null);
+            return;
+        }
+
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+
+        Object prev;
+
+        long stamp = lock(key);
+        try {
+            prev = store(key, value);
+            Expiry expiry = new Expiry(value, System.nanoTime() + ttl.toNanos());
+            expiries().put(key, expiry);
+            expiry.timeout = TimingWheel.shared().schedule(() -> ForkJoinPool.commonPool().execute(() -> expire(key, expiry)), ttl);
+        } finally {
+            unlock(key, stamp);
+        }
+
+        emitUpdate(key, prev, value, equality);
+    }
+
+    private void expire(@NotNull String key, @NotNull Expiry expiry) {
+        Map<String, Expiry> expiries = this.expiries;
+        if (expiries == null) {
+            return;
+        }
+
+        long stamp = lock(key);
+        try {
+            if (!expiries.remove(key, expiry) || read(key) != expiry.value) {
+                return;
+            }
+
+            write(key, null);
+        } finally {
+            unlock(key, stamp);
+        }
+
+        emitUpdate(key, expiry.value, null, equality);
+    }
+
+    @Override
+    public <T> @NotNull T getPropertyOrSetDefault(@NotNull PropertyKey<T> key, @NotNull T defaultValue) {
+        return (T) getPropertyOrSetDefault(key.getIdentifier(), defaultValue);
+    }
+
+    @Override
+    public @NotNull Object getPropertyOrSetDefault(@NotNull String key, @NotNull Object defaultValue) {
+        Object value;
+
+        long stamp = lock(key);
+        try {
+            value = load(key);
+            if (value == null) {
+                store(key, defaultValue);
+            }
+        } finally {
+            unlock(key, stamp);
+        }
+
+        if (value == null) {
+            value = defaultValue;
+            emitUpdate(key, null, defaultValue, equality);
+        }
+
+        return value;
+    }
+
+    @Override
+    public <T> @NotNull T getPropertyOrCreateDefault(@NotNull PropertyKey<T> key, @NotNull Supplier<T> supplier) {
+        return (T) getPropertyOrCreateDefault(key.getIdentifier(), (Supplier<Object>) supplier);
+    }
+
+    @Override
+    public @NotNull Object getPropertyOrCreateDefault(@NotNull String key, @NotNull Supplier<@NotNull Object> supplier) {
+        Object value = load(key);
+        if (value != null) {
+            return value;
+        }
+
+        long stamp = lock(key);
+        try {
+            value = load(key);
+            if (value != null) {
+                return value;
+            }
+
+            value = supplier.get();
+            if (value == null) {
+                return null;
+            }
+
+            store(key, value);
+        } finally {
+            unlock(key, stamp);
+        }
+
+        emitUpdate(key, null, value, equality);
+        return value;
+    }
+
+    @Override
+    public <T> T getPropertyAndUpdate(@NotNull PropertyKey<T> key, @NotNull Function<@Nullable T, @Nullable T> function) {
+        return (T) getPropertyAndUpdate(key.getIdentifier(), (Function<Object, Object>) function, equality(key));
+    }
+
+    @Override
+    public @Nullable Object getPropertyAndUpdate(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function) {
+        return getPropertyAndUpdate(key, function, equality);
+    }
+
+    private @Nullable Object getPropertyAndUpdate(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function,
+                                                  @NotNull PropertyEquality<Object> equality) {
+        Object prev;
+        Object curr;
+
+        long stamp = lock(key);
+        try {
+            prev = load(key);
+            curr = function.apply(prev);
+            if (equality.isSame(prev, curr)) {
+                return prev;
+            }
+
+            store(key, curr);
+        } finally {
+            unlock(key, stamp);
+        }
+
+        emitUpdate(key, prev, curr, equality);
+        return prev;
+    }
+
+    @Override
+    public <T> T updatePropertyAndGet(@NotNull PropertyKey<T> key, @NotNull Function<@Nullable T, @Nullable T> function) {
+        return (T) updatePropertyAndGet(key.getIdentifier(), (Function<Object, Object>) function, equality(key));
+    }
+
+    @Override
+    public @Nullable Object updatePropertyAndGet(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function) {
+        return updatePropertyAndGet(key, function, equality);
+    }
+
+    private @Nullable Object updatePropertyAndGet(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function,
+                                                  @NotNull PropertyEquality<Object> equality) {
+        Object prev;
+        Object curr;
+
+        long stamp = lock(key);
+        try {
+            prev = load(key);
+            curr = function.apply(prev);
+            if (equality.isSame(prev, curr)) {
+                return curr;
+            }
+
+            store(key, curr);
+        } finally {
+            unlock(key, stamp);
+        }
+
+        emitUpdate(key, prev, curr, equality);
+        return curr;
+    }
+
+    @Override
+    public @NotNull PropertyBatchUpdate updateAll(@NotNull Set<PropertyKey<?>> keys, @NotNull Function<PropertyView, PropertyChanges> function) {
+        Map<String, PropertyEquality<Object>> equalities = new LinkedHashMap<>();
+        for (PropertyKey<?> key : keys) {
+            equalities.putIfAbsent(key.getIdentifier(), equality(key));
+        }
+
+        String[] identifiers = equalities.keySet().toArray(String[]::new);
+        List<PropertyUpdate> updates = new ArrayList<>(identifiers.length);
+
+        while (true) {
+            Map<String, Object> snapshot = new HashMap<>();
+            for (String identifier : identifiers) {
+                snapshot.put(identifier, load(identifier));
+            }
+
+            PropertyChanges changes = function.apply(new ViewImpl(snapshot));
+            for (Map.Entry<String, Object> change : changes.getChanges().entrySet()) {
+                if (!snapshot.containsKey(change.getKey())) {
+                    throw new IllegalArgumentException("Property " + change.getKey() + " is not part of this update");
+                }
+
+                Object prev = snapshot.get(change.getKey());
+                PropertyEquality<Object> equality = equalities.get(change.getKey());
+                if (equality == PropertyEquality.NEVER || !equality.isSame(prev, change.getValue())) {
+                    updates.add(new PropertyUpdate(change.getKey(), prev, change.getValue()));
+                }
+            }
+
+            if (commit(identifiers, snapshot, updates)) {
+                break;
+            }
+
+            updates.clear();
+        }
+
+        PropertyBatchUpdate batch = new PropertyBatchUpdate(Collections.unmodifiableList(updates));
+        if (scheduler != null) {
+            for (PropertyUpdate update : updates) {
+                defer(update.key(), update.prev(), equalities.get(update.key()));
+            }
+        } else if (!updates.isEmpty()) {
+            emit(PropertyMap.UPDATE_PROPERTIES_KEY, batch);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Applies the updates of a batch if none of its properties changed since they were read.
+     * @return whether the updates were applied
+     */
+    private boolean commit(@NotNull String @NotNull [] identifiers, @NotNull Map<String, Object> snapshot, @NotNull List<PropertyUpdate> updates) {
+        Runnable unlock = lockAll(identifiers);
+        try {
+            for (String identifier : identifiers) {
+                if (load(identifier) != snapshot.get(identifier)) {
+                    return false;
+                }
+            }
+
+            for (PropertyUpdate update : updates) {
+                store(update.key(), update.curr());
+            }
+
+            return true;
+        } finally {
+            unlock.run();
+        }
+    }
+
+    @Override
+    public <T> @NotNull Optional<T> getPropertyAsOptional(@NotNull PropertyKey<T> key) {
+        return (Optional<T>) getPropertyAsOptional(key.getIdentifier());
+    }
+
+    @Override
+    public @NotNull Optional<Object> getPropertyAsOptional(@NotNull String key) {
+        return Optional.ofNullable(load(key));
+    }
+
+    @Override
+    public @NotNull Collection<PropertyEntry> getProperties() {
+        return new EntryCollection();
+    }
+
+    @Override
+    public void copyInto(@NotNull PropertyMap target) {
+        Iterator<Map.Entry<String, Object>> iterator = liveEntries();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            target.setProperty(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public @NotNull PropertyMapFootprint footprint() {
+        long bytes = storageFootprint();
+        Map<String, Expiry> expiries = this.expiries;
+        if (expiries != null) {
+            bytes += MemoryEstimates.hashMap(expiries.size()) + expiries.size() * MemoryEstimates.object(2, 8);
+        }
+
+        Map<String, LoadedProperty> loaded = this.loaded;
+        if (loaded != null) {
+            bytes += MemoryEstimates.hashMap(loaded.size()) + loaded.size() * MemoryEstimates.object(6, 13);
+        }
+
+        List<String> keys = new ArrayList<>(propertyCount());
+        Iterator<Map.Entry<String, Object>> iterator = liveEntries();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey());
+        }
+
+        ObserverEmitter emitter = createdEmitter();
+        return new PropertyMapFootprint(bytes, Collections.unmodifiableList(keys), emitter == null ? null : emitter.footprint());
+    }
+
+    /**
+     * Emits a single property update, or defers it if this map defers its updates.
+     * @param equality equality policy of the written key, applied again when a deferred update is flushed
+     */
+    private void emitUpdate(@NotNull String key, @Nullable Object prev, @Nullable Object curr, @NotNull PropertyEquality<Object> equality) {
+        if (scheduler == null) {
+            deliver(key, prev, curr);
+        } else {
+            defer(key, prev, equality);
+        }
+    }
+
+    private void deliver(@NotNull String key, @Nullable Object prev, @Nullable Object curr) {
+        if (!flyweightUpdates) {
+            emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, prev, curr));
+            return;
+        }
+
+        ObserverEmitter emitter = createdEmitter();
+        if (emitter != null) {
+            if (emitter.isObserved(PropertyMap.UPDATE_PROPERTY_VIEW_KEY)) {
+                UpdateViews.emit(emitter, key, prev, curr);
+            }
+
+            if (emitter.isObserved(PropertyMap.UPDATE_PROPERTY_KEY)) {
+                emitter.emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, prev, curr));
+            }
+        }
+    }
+
+    private void defer(@NotNull String key, @Nullable Object prev, @NotNull PropertyEquality<Object> equality) {
+        Map<String, Deferred> changed = this.changed;
+        if (changed == null) {
+            changed = new ConcurrentHashMap<>();
+            if (!CHANGED.compareAndSet(this, null, changed)) {
+                changed = this.changed;
+            }
+        }
+
+        if (!changed.containsKey(key)) {
+            changed.putIfAbsent(key, new Deferred(prev, equality));
+        }
+
+        if (!scheduled && SCHEDULED.compareAndSet(this, false, true)) {
+            scheduler.schedule(this);
+        }
+    }
+
+    /**
+     * Emits one update for every property changed since the last flush, unless its current value
+     * is the same instance as, or the same according to the equality policy of its key as, the
+     * value before its first write. The scheduled flag is cleared first, so a concurrent write
+     * either is seen by this flush or schedules another.
+     */
+    void flushUpdates() {
+        scheduled = false;
+        Map<String, Deferred> changed = this.changed;
+        if (changed == null) {
+            return;
+        }
+
+        for (String key : changed.keySet()) {
+            Deferred deferred = changed.remove(key);
+            if (deferred == null) {
+                continue;
+            }
+
+            Object prev = deferred.prev();
+            Object curr = load(key);
+            if (prev != curr && !deferred.equality().isSame(prev, curr)) {
+                deliver(key, prev, curr);
+            }
+        }
+    }
+
+    /**
+     * A property changed since the last flush.
+     * @param prev value before the first write since the last flush
+     * @param equality equality policy of the first write
+     */
+    private record Deferred(@Nullable Object prev, @NotNull PropertyEquality<Object> equality) {
+    }
+
+    @Override
+    public @NotNull ObserverEmitter getEmitter() {
+        ObserverEmitter emitter = this.emitter;
+        if (emitter == null) {
+            emitter = ObserverEmitter.create();
+            if (!EMITTER.compareAndSet(this, null, emitter)) {
+                emitter = this.emitter;
+            }
+        }
+
+        return emitter;
+    }
+
+    /**
+     * Emits an event on the emitter of this map. If the emitter has not been created yet, there
+     * cannot be any subscribers, so the emission is skipped without creating the emitter.
+     * @param key observer key
+     * @param value emission value
+     */
+    @Override
+    public <T> void emit(@NotNull ObserverKey<T> key, @Nullable T value) {
+        ObserverEmitter emitter = this.emitter;
+        if (emitter != null) {
+            emitter.emit(key, value);
+        }
+    }
+
+    private static final class Expiry {
+
+        private final @NotNull Object value;
+        private final long deadline;
+        private TimingWheel.Timeout timeout;
+
+        private Expiry(@NotNull Object value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        private boolean isExpired(@Nullable Object stored) {
+            return stored == value && System.nanoTime() - deadline >= 0;
+        }
+
+    }
+
+    private final class LoadedProperty extends ClockPropertyCache.Entry {
+
+        private static final VarHandle FUTURE;
+
+        static {
+            try {
+                FUTURE = MethodHandles.lookup().findVarHandle(LoadedProperty.class, "future", CompletableFuture.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final @NotNull String key;
+        private volatile @Nullable CompletableFuture<Object> future;
+        private volatile @Nullable Object value;
+        private volatile long loadedAt;
+        private volatile @Nullable PropertyCache cache;
+
+        private LoadedProperty(@NotNull String key) {
+            this.key = key;
+        }
+
+        private @NotNull CompletableFuture<Object> load(@NotNull LoadingPropertyKey<?> loadingKey) {
+            while (true) {
+                CompletableFuture<Object> future = this.future;
+                if (future != null) {
+                    return future;
+                }
+
+                CompletableFuture<Object> created = new CompletableFuture<>();
+                if (FUTURE.compareAndSet(this, null, created)) {
+                    start(loadingKey, created);
+                    return created;
+                }
+            }
+        }
+
+        private void start(@NotNull LoadingPropertyKey<?> loadingKey, @NotNull CompletableFuture<Object> result) {
+            CompletableFuture<?> loading;
+            try {
+                loading = loadingKey.getLoader().load(AbstractPropertyMap.this);
+            } catch (Throwable e) {
+                loading = CompletableFuture.failedFuture(e);
+            }
+
+            loading.whenComplete((value, error) -> {
+                Throwable failure = error;
+                try {
+                    if (failure == null) {
+                        complete(value, loadingKey.getCache());
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    future = null;
+                }
+
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+        }
+
+        private void complete(@Nullable Object value, @NotNull PropertyCache cache) {
+            Object prev;
+
+            long stamp = lock(key);
+            try {
+                prev = store(key, value);
+                this.value = value;
+                this.loadedAt = System.nanoTime();
+            } finally {
+                unlock(key, stamp);
+            }
+
+            emitUpdate(key, prev, value, equality);
+
+            PropertyCache previous = this.cache;
+            if (previous != null && (previous != cache || value == null)) {
+                previous.remove(this);
+            }
+
+            if (value != null) {
+                this.cache = cache;
+                cache.admit(this);
+            }
+        }
+
+        @Override
+        public void evict() {
+            Object prev = null;
+
+            long stamp = lock(key);
+            try {
+                Map<String, LoadedProperty> loaded = AbstractPropertyMap.this.loaded;
+                if (loaded != null) {
+                    loaded.remove(key, this);
+                }
+
+                Object value = read(key);
+                if (value != null && value == this.value) {
+                    store(key, null);
+                    prev = value;
+                }
+            } finally {
+                unlock(key, stamp);
+            }
+
+            if (prev != null) {
+                emitUpdate(key, prev, null, equality);
+            }
+        }
+
+    }
+
+    private class EntryCollection extends AbstractCollection<PropertyEntry> {
+
+        @Override
+        public int size() {
+            return liveCount();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !liveEntries().hasNext();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof PropertyEntry(String key, Object obj)) {
+                Object val = load(key);
+                return Objects.equals(obj, val);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public @NotNull Iterator<PropertyEntry> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean add(PropertyEntry entry) {
+            setProperty(entry.key(), entry.data());
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o instanceof PropertyEntry(String key, Object obj)) {
+                while (true) {
+                    Object val = load(key);
+                    if (!Objects.equals(val, obj)) {
+                        return val == null;
+                    }
+
+                    if (val == null || compareAndStore(key, val, null)) {
+                        return true;
+                    }
+                }
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public void clear() {
+            AbstractPropertyMap.this.clear();
+        }
+
+    }
+
+    private static class ViewImpl implements PropertyView {
+
+        private final Map<String, Object> snapshot;
+
+        public ViewImpl(Map<String, Object> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public <T> @Nullable T getProperty(@NotNull PropertyKey<T> key) {
+            if (!snapshot.containsKey(key.getIdentifier())) {
+                throw new IllegalArgumentException("Property " + key.getIdentifier() + " is not part of this view");
+            }
+
+            return (T) snapshot.get(key.getIdentifier());
+        }
+
+    }
+
+    private class EntryIterator implements Iterator<PropertyEntry> {
+
+        private final Iterator<Map.Entry<String, Object>> iterator = liveEntries();
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public PropertyEntry next() {
+            Map.Entry<String, Object> entry = iterator.next();
+            return entry == null ? null : new PropertyEntry(entry.getKey(), entry.getValue());
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import dev.tommyjs.jobserve.property.PropertyCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@link PropertyCache} implementation using the CLOCK policy. Entries sit in a ring, and a read
+ * only sets the referenced flag of its entry. When the ring is full, the hand sweeps forward,
+ * clearing the flag of referenced entries, and evicts the first entry which was not referenced
+ * since the last sweep. Admission and eviction are serialized, but the eviction callback runs
+ * outside the cache lock. Entries must extend {@link Entry}, which holds the state of the ring, as
+ * the entries created by property maps do.
+ */
+public final class ClockPropertyCache implements PropertyCache {
+
+    public static final ClockPropertyCache SHARED = new ClockPropertyCache(1 << 16);
+
+    private final @Nullable Entry @NotNull [] ring;
+    private int hand;
+    private int size;
+
+    public ClockPropertyCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.ring = new Entry[capacity];
+    }
+
+    @Override
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the entry does not extend {@link Entry}
+     */
+    @Override
+    public void admit(@NotNull PropertyCache.Entry cached) {
+        Entry entry = entry(cached);
+        Entry victim = null;
+
+        synchronized (this) {
+            if (entry.slot >= 0) {
+                entry.referenced = true;
+                return;
+            }
+
+            if (size < ring.length) {
+                while (ring[hand] != null) {
+                    hand = next(hand);
+                }
+            } else {
+                while (true) {
+                    Entry candidate = ring[hand];
+                    if (!candidate.referenced) {
+                        victim = candidate;
+                        victim.slot = -1;
+                        size--;
+                        break;
+                    }
+
+                    candidate.referenced = false;
+                    hand = next(hand);
+                }
+            }
+
+            ring[hand] = entry;
+            entry.slot = hand;
+            size++;
+            hand = next(hand);
+        }
+
+        if (victim != null) {
+            victim.evict();
+        }
+    }
+
+    @Override
+    public void touch(@NotNull PropertyCache.Entry cached) {
+        entry(cached).touch();
+    }
+
+    @Override
+    public synchronized void remove(@NotNull PropertyCache.Entry cached) {
+        Entry entry = entry(cached);
+        if (entry.slot >= 0 && ring[entry.slot] == entry) {
+            ring[entry.slot] = null;
+            entry.slot = -1;
+            size--;
+        }
+    }
+
+    private static @NotNull Entry entry(@NotNull PropertyCache.Entry entry) {
+        if (!(entry instanceof Entry clock)) {
+            throw new IllegalArgumentException("Clock caches only hold entries extending ClockPropertyCache.Entry");
+        }
+
+        return clock;
+    }
+
+    private int next(int index) {
+        return index + 1 == ring.length ? 0 : index + 1;
+    }
+
+    /**
+     * An entry of a {@link ClockPropertyCache}, which belongs to at most one cache at a time.
+     */
+    public abstract static class Entry implements PropertyCache.Entry {
+
+        private volatile boolean referenced;
+        private int slot = -1;
+
+        /**
+         * Marks this entry as recently read. Skips the write if already marked, so repeated hits
+         * do not keep invalidating the cache line.
+         */
+        public void touch() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+
+    }
+
+}
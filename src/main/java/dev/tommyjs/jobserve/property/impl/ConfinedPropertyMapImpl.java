@@ -0,0 +1,247 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import dev.tommyjs.jobserve.observer.ConfinedObserverEmitter;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.property.ConfinedPropertyMap;
+import dev.tommyjs.jobserve.property.CounterProperty;
+import dev.tommyjs.jobserve.property.LoadingPropertyKey;
+import dev.tommyjs.jobserve.property.PropertyCounter;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thread confined {@link dev.tommyjs.jobserve.property.PropertyMap} implementation. Properties are
+ * stored in a lazily created {@link HashMap}, locking is a no-op, and the emitter is a lazily
+ * created {@link ConfinedObserverEmitter} sharing the ownership of this map.
+ * <p>
+ * Reads and writes bypass the tables the base class shares between threads, and emissions go
+ * through the plain emitter field of this class, so neither touches a volatile field. The owner
+ * is volatile, as ownership is handed between threads, but it is only checked with assertions.
+ */
+public class ConfinedPropertyMapImpl extends AbstractPropertyMap implements ConfinedPropertyMap {
+
+    private static final Runnable NO_UNLOCK = () -> {};
+    private static final VarHandle OWNER;
+
+    static {
+        try {
+            OWNER = MethodHandles.lookup().findVarHandle(ConfinedPropertyMapImpl.class, "owner", Thread.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private @Nullable Map<String, Object> data;
+    private @Nullable Map<String, Long> deadlines;
+    private @Nullable ConfinedObserverEmitter emitter;
+    private volatile @Nullable Thread owner;
+
+    public ConfinedPropertyMapImpl() {
+        super(null);
+        this.owner = Thread.currentThread();
+    }
+
+    private boolean checkOwner() {
+        if (owner != Thread.currentThread()) {
+            throw new AssertionError("Confined property map accessed by " + Thread.currentThread() + " while owned by " + owner);
+        }
+
+        return true;
+    }
+
+    @Override
+    public @Nullable Thread getOwner() {
+        return owner;
+    }
+
+    @Override
+    public void release() {
+        if (!OWNER.compareAndSet(this, Thread.currentThread(), null)) {
+            throw new IllegalStateException("Confined property map is not owned by the current thread");
+        }
+
+        if (emitter != null) {
+            emitter.release();
+        }
+    }
+
+    @Override
+    public void acquire() {
+        Thread current = Thread.currentThread();
+        if (owner != current && !OWNER.compareAndSet(this, null, current)) {
+            throw new IllegalStateException("Confined property map is owned by another thread");
+        }
+
+        if (emitter != null) {
+            emitter.acquire();
+        }
+    }
+
+    @Override
+    protected @Nullable Object read(@NotNull String key) {
+        assert checkOwner();
+        return data == null ? null : data.get(key);
+    }
+
+    @Override
+    protected boolean isExpired(@NotNull String key, @NotNull Object value) {
+        return deadlines != null && isPast(deadlines.get(key));
+    }
+
+    @Override
+    protected boolean hasDeadlines() {
+        return deadlines != null;
+    }
+
+    @Override
+    protected @Nullable Object store(@NotNull String key, @Nullable Object value) {
+        Object prev = write(key, value);
+        if (deadlines != null && isPast(deadlines.remove(key))) {
+            return null;
+        }
+
+        return prev;
+    }
+
+    private static boolean isPast(@Nullable Long deadline) {
+        return deadline != null && System.nanoTime() - deadline >= 0;
+    }
+
+    @Override
+    protected @Nullable Object write(@NotNull String key, @Nullable Object value) {
+        assert checkOwner();
+        if (value == null) {
+            return data == null ? null : data.remove(key);
+        }
+
+        if (data == null) {
+            data = new HashMap<>();
+        }
+
+        return data.put(key, value);
+    }
+
+    /**
+     * Periodic emissions would be made from the common fork-join pool, outside the owning thread, so
+     * only counters without periodic emission are supported.
+     * @throws UnsupportedOperationException if the counter is emitted periodically
+     */
+    @Override
+    public @NotNull PropertyCounter getCounter(@NotNull CounterProperty property) {
+        if (property.getPeriodNanos() > 0) {
+            throw new UnsupportedOperationException("Confined property maps cannot emit counters periodically");
+        }
+
+        return super.getCounter(property);
+    }
+
+    /**
+     * Loaded properties would be stored by the thread completing the load, outside the owning
+     * thread, so loading properties are not supported by confined maps.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<T> getPropertyAsync(@NotNull LoadingPropertyKey<T> key) {
+        throw new UnsupportedOperationException("Confined property maps cannot load properties");
+    }
+
+    /**
+     * Deadlines are kept in a plain table beside the properties. No other thread may touch this map,
+     * so nothing removes a property when it expires, and no update is emitted for the expiry.
+     * Reads treat an expired property as not stored, and it is dropped by the next write of the
+     * property or by {@link #clear()}.
+     */
+    @Override
+    public void setProperty(@NotNull String key, @Nullable Object value, @NotNull Duration ttl) {
+        if (value == null) {
+            setProperty(key, null);
+            return;
+        }
+
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+
+        setProperty(key, value);
+        if (deadlines == null) {
+            deadlines = new HashMap<>();
+        }
+
+        deadlines.put(key, System.nanoTime() + ttl.toNanos());
+    }
+
+    @Override
+    protected long lock(@NotNull String key) {
+        return 0;
+    }
+
+    @Override
+    protected void unlock(@NotNull String key, long stamp) {
+
+    }
+
+    @Override
+    protected @NotNull Runnable lockAll(@NotNull String @NotNull [] keys) {
+        return NO_UNLOCK;
+    }
+
+    @Override
+    protected @NotNull Iterator<Map.Entry<String, Object>> entries() {
+        assert checkOwner();
+        return data == null ? Collections.emptyIterator() : data.entrySet().iterator();
+    }
+
+    @Override
+    protected int propertyCount() {
+        assert checkOwner();
+        return data == null ? 0 : data.size();
+    }
+
+    @Override
+    protected long storageFootprint() {
+        assert checkOwner();
+        return MemoryEstimates.object(8, 0) + (data == null ? 0 : MemoryEstimates.hashMap(data.size()))
+            + (deadlines == null ? 0 : MemoryEstimates.hashMap(deadlines.size()) + deadlines.size() * MemoryEstimates.object(0, 8));
+    }
+
+    @Override
+    protected @Nullable ObserverEmitter createdEmitter() {
+        return emitter;
+    }
+
+    @Override
+    public void clear() {
+        assert checkOwner();
+        data = null;
+        deadlines = null;
+    }
+
+    @Override
+    public @NotNull ObserverEmitter getEmitter() {
+        assert checkOwner();
+        if (emitter == null) {
+            emitter = ObserverEmitter.createConfined();
+        }
+
+        return emitter;
+    }
+
+    @Override
+    public <T> void emit(@NotNull ObserverKey<T> key, @Nullable T value) {
+        if (emitter != null) {
+            emitter.emit(key, value);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Global striped locks guarding property mutations. Every (map, key) pair hashes to one stripe,
+ * so single key mutations only contend with mutations that share their stripe, and multi key
+ * mutations can lock exactly the stripes they touch, always in ascending order to avoid deadlock.
+ * <p>
+ * Stripes are shared by every map, and single key updates hold the stripe of their key while
+ * running the update function or default supplier. Such code that writes other properties, of
+ * this map or another, takes a second stripe while holding the first, and may therefore deadlock
+ * with a thread doing the same in the opposite order, as documented on {@code PropertyMap}.
+ */
+final class PropertyLocks {
+
+    private static final int STRIPES = 256;
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private PropertyLocks() {
+    }
+
+    static int stripe(@NotNull Object owner, @NotNull String key) {
+        int h = System.identityHashCode(owner) * 31 + key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        return h & (STRIPES - 1);
+    }
+
+    static int stripe(@NotNull Object owner) {
+        int h = System.identityHashCode(owner);
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        return h & (STRIPES - 1);
+    }
+
+    static void lock(int stripe) {
+        LOCKS[stripe].lock();
+    }
+
+    static void unlock(int stripe) {
+        LOCKS[stripe].unlock();
+    }
+
+    /**
+     * Locks the stripes of all given keys of an owner, in ascending stripe order.
+     * @param owner owning map
+     * @param keys keys to lock
+     * @return distinct locked stripes, to be passed to {@link #unlockAll(int[])}
+     */
+    static int @NotNull [] lockAll(@NotNull Object owner, @NotNull String @NotNull [] keys) {
+        int[] stripes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            stripes[i] = stripe(owner, keys[i]);
+        }
+
+        stripes = Arrays.stream(stripes).sorted().distinct().toArray();
+        for (int stripe : stripes) {
+            lock(stripe);
+        }
+
+        return stripes;
+    }
+
+    static void unlockAll(int @NotNull [] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            unlock(stripes[i]);
+        }
+    }
+
+}
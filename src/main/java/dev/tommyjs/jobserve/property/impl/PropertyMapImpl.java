@@ -1,261 +1,294 @@
 package dev.tommyjs.jobserve.property.impl;
 
-import dev.tommyjs.jobserve.observer.Observable;
 import dev.tommyjs.jobserve.observer.ObserverEmitter;
-import dev.tommyjs.jobserve.property.PropertyEntry;
-import dev.tommyjs.jobserve.property.PropertyKey;
-import dev.tommyjs.jobserve.property.PropertyMap;
-import dev.tommyjs.jobserve.property.PropertyUpdate;
+import dev.tommyjs.jobserve.property.PropertyMapOptions;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
-import java.util.function.Supplier;
 
-@SuppressWarnings("unchecked")
-public class PropertyMapImpl implements PropertyMap, Observable {
-
-    private final AtomicReference<ObserverEmitter> emitter;
-    private final AtomicReference<Map<String, Object>> data;
-
-    public PropertyMapImpl() {
-        this.emitter = new AtomicReference<>();
-        this.data = new AtomicReference<>();
+/**
+ * Default {@link dev.tommyjs.jobserve.property.PropertyMap} implementation. Storage grows through
+ * increasingly large representations as properties are added, so maps with few properties stay
+ * small:
+ * <ul>
+ *     <li>{@code null} while empty</li>
+ *     <li>a {@code [key, value]} array holding a single entry</li>
+ *     <li>an interleaved {@code [key, value, key, value, ...]} array of up to
+ *     {@link #SMALL_CAPACITY} entries</li>
+ *     <li>a {@link ConcurrentHashMap} once the small capacity is exceeded</li>
+ * </ul>
+ * Replacing the value of a stored key writes its array slot in place, so steady-state writes do
+ * not allocate, and writers of the same key are already serialized by the key lock. Arrays are
+ * only copied when a key is added or removed. These structural changes are serialized by a
+ * sequence counter, which is odd while an array is being copied: an in-place write which sees the
+ * counter move retries against the new array, and a copy always sees in-place writes which
+ * completed before it started. Promotion to a hash map is one-way until the map is cleared.
+ */
+public class PropertyMapImpl extends AbstractPropertyMap {
+
+    private static final int SMALL_CAPACITY = 8;
+    private static final Object NONE = new Object();
+    private static final VarHandle STATE;
+    private static final VarHandle STRUCTURE;
+    private static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            STATE = lookup.findVarHandle(PropertyMapImpl.class, "state", Object.class);
+            STRUCTURE = lookup.findVarHandle(PropertyMapImpl.class, "structure", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
     }
 
-    public PropertyMapImpl(@NotNull ObserverEmitter emitter) {
-        this();
-        this.emitter.set(emitter);
-    }
+    private volatile @Nullable Object state;
+    private volatile int structure;
 
-    protected Map<String, Object> getData(boolean createIfAbsent) {
-        return createIfAbsent ?
-            data.updateAndGet(map -> Objects.requireNonNullElseGet(map, ConcurrentHashMap::new)) :
-            Objects.requireNonNullElseGet(data.get(), Collections::emptyMap);
+    public PropertyMapImpl() {
+        this(null);
     }
 
-    @Override
-    public <T> @Nullable T getProperty(@NotNull PropertyKey<T> key) {
-        return (T) getProperty(key.getIdentifier());
+    public PropertyMapImpl(@Nullable ObserverEmitter emitter) {
+        super(emitter);
     }
 
-    @Override
-    public @Nullable Object getProperty(@NotNull String key) {
-        Map<String, Object> data = getData(false);
-        return data.get(key);
+    public PropertyMapImpl(@Nullable ObserverEmitter emitter, @NotNull PropertyMapOptions options) {
+        super(emitter, options);
     }
 
     @Override
-    public <T> @NotNull T getPropertyOrThrow(@NotNull PropertyKey<T> key) {
-        return (T) getPropertyOrThrow(key.getIdentifier());
-    }
+    @SuppressWarnings("unchecked")
+    protected @Nullable Object read(@NotNull String key) {
+        Object state = this.state;
+        if (state == null) {
+            return null;
+        } else if (state instanceof Object[] entries) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) {
+                    return ENTRY.getAcquire(entries, i + 1);
+                }
+            }
 
-    @Override
-    public @NotNull Object getPropertyOrThrow(@NotNull String key) {
-        Object value = getData(false).get(key);
-        if (value == null) {
-            throw new IllegalStateException("Property not present");
+            return null;
         } else {
-            return value;
+            return ((Map<String, Object>) state).get(key);
         }
     }
 
     @Override
-    public <T> @NotNull T getPropertyOrDefault(@NotNull PropertyKey<T> key, @NotNull T defaultValue) {
-        return (T) getPropertyOrDefault(key.getIdentifier(), defaultValue);
-    }
+    @SuppressWarnings("unchecked")
+    protected @Nullable Object write(@NotNull String key, @Nullable Object value) {
+        Object replaced = NONE;
+        while (true) {
+            int structure = awaitStructure();
+            Object state = this.state;
+            if (state instanceof ConcurrentHashMap<?, ?>) {
+                Map<String, Object> map = (Map<String, Object>) state;
+                Object prev = value == null ? map.remove(key) : map.put(key, value);
+                if (this.state == map) {
+                    return prev;
+                }
+
+                continue;
+            }
 
-    @Override
-    public @NotNull Object getPropertyOrDefault(@NotNull String key, @NotNull Object defaultValue) {
-        Object value = getData(false).get(key);
-        return value == null ? defaultValue : value;
-    }
+            Object[] entries = (Object[]) state;
+            int index = indexOf(entries, key);
 
-    @Override
-    public <T> void setProperty(@NotNull PropertyKey<T> key, @Nullable T value) {
-        setProperty(key.getIdentifier(), value);
-    }
+            if (index >= 0 && value != null) {
+                Object prev = ENTRY.getAndSet(entries, index + 1, value);
+                if (this.structure == structure && this.state == entries) {
+                    return replaced == NONE ? prev : replaced;
+                }
 
-    @Override
-    public void setProperty(@NotNull String key, @Nullable Object value) {
-        if (value == null) {
-            Object prev = getData(true).remove(key);
-            emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, prev, null));
-        } else {
-            Object prev = getData(true).put(key, value);
-            emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, prev, value));
-        }
-    }
+                if (replaced == NONE) {
+                    replaced = prev;
+                }
 
-    @Override
-    public <T> @NotNull T getPropertyOrSetDefault(@NotNull PropertyKey<T> key, @NotNull T defaultValue) {
-        return (T) getPropertyOrSetDefault(key.getIdentifier(), defaultValue);
+                continue;
+            }
+
+            if (index < 0 && value == null) {
+                return null;
+            }
+
+            if (!STRUCTURE.compareAndSet(this, structure, structure + 1)) {
+                continue;
+            }
+
+            try {
+                Object next;
+                if (value == null) {
+                    next = remove(entries, index);
+                } else if (entries == null || entries.length < SMALL_CAPACITY * 2) {
+                    next = append(entries, key, value);
+                } else {
+                    next = promote(entries, key, value);
+                }
+
+                if (STATE.compareAndSet(this, state, next)) {
+                    return index < 0 ? null : ENTRY.getVolatile(entries, index + 1);
+                }
+            } finally {
+                this.structure = structure + 2;
+            }
+        }
     }
 
-    @Override
-    public @NotNull Object getPropertyOrSetDefault(@NotNull String key, @NotNull Object defaultValue) {
-        Object value = getData(true).putIfAbsent(key, defaultValue);
-        if (value == null) {
-            value = defaultValue;
-            emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, null, defaultValue));
+    /**
+     * Waits for any structural change in progress to complete.
+     * @return even structure sequence
+     */
+    private int awaitStructure() {
+        int structure;
+        while (((structure = this.structure) & 1) != 0) {
+            Thread.yield();
         }
 
-        return value;
+        return structure;
     }
 
-    @Override
-    public <T> @NotNull T getPropertyOrCreateDefault(@NotNull PropertyKey<T> key, @NotNull Supplier<T> supplier) {
-        return (T) getPropertyOrCreateDefault(key.getIdentifier(), (Supplier<Object>) supplier);
+    private static int indexOf(Object @Nullable [] entries, @NotNull String key) {
+        if (entries != null) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
     }
 
-    @Override
-    public @NotNull Object getPropertyOrCreateDefault(@NotNull String key, @NotNull Supplier<@NotNull Object> supplier) {
-        AtomicBoolean updated = new AtomicBoolean(false);
-        Object value = getData(true).computeIfAbsent(key, k -> {
-            Object obj = supplier.get();
-            updated.set(true);
-            return obj;
-        });
-
-        if (updated.get()) {
-            emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, null, value));
+    private static Object @NotNull [] append(Object @Nullable [] entries, @NotNull String key, @NotNull Object value) {
+        if (entries == null) {
+            return new Object[] { key, value };
         }
 
-        return value;
+        Object[] next = new Object[entries.length + 2];
+        copy(entries, 0, next, 0, entries.length);
+        next[entries.length] = key;
+        next[entries.length + 1] = value;
+        return next;
     }
 
-    @Override
-    public <T> T getPropertyAndUpdate(@NotNull PropertyKey<T> key, @NotNull Function<@Nullable T, @Nullable T> function) {
-        return (T) getPropertyAndUpdate(key.getIdentifier(), (Function<Object, Object>) function);
-    }
+    private static Object @Nullable [] remove(Object @NotNull [] entries, int index) {
+        if (entries.length == 2) {
+            return null;
+        }
 
-    @Override
-    public @Nullable Object getPropertyAndUpdate(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function) {
-        AtomicReference<Object> prev = new AtomicReference<>();
-        Object value = getData(true).compute(key, (k, v) -> {
-            prev.set(v);
-            return function.apply(v);
-        });
-
-        emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, prev.get(), value));
-        return prev.get();
+        Object[] next = new Object[entries.length - 2];
+        copy(entries, 0, next, 0, index);
+        copy(entries, index + 2, next, index, next.length - index);
+        return next;
     }
 
-    @Override
-    public <T> T updatePropertyAndGet(@NotNull PropertyKey<T> key, @NotNull Function<@Nullable T, @Nullable T> function) {
-        return (T) updatePropertyAndGet(key.getIdentifier(), (Function<Object, Object>) function);
+    /**
+     * Copies interleaved entries, reading values with volatile reads so that the copy sees every
+     * in-place write which completed before the structural change began.
+     */
+    private static void copy(Object @NotNull [] src, int srcPos, Object @NotNull [] dest, int destPos, int length) {
+        for (int i = 0; i < length; i += 2) {
+            dest[destPos + i] = src[srcPos + i];
+            dest[destPos + i + 1] = ENTRY.getVolatile(src, srcPos + i + 1);
+        }
     }
 
-    @Override
-    public @Nullable Object updatePropertyAndGet(@NotNull String key, @NotNull Function<@Nullable Object, @Nullable Object> function) {
-        AtomicReference<Object> prev = new AtomicReference<>();
-        Object curr = getData(true).compute(key, (k, v) -> {
-            prev.set(v);
-            return function.apply(v);
-        });
-
-        emit(PropertyMap.UPDATE_PROPERTY_KEY, new PropertyUpdate(key, prev.get(), curr));
-        return curr;
-    }
+    private static @NotNull Map<String, Object> promote(Object @NotNull [] entries, @NotNull String key, @NotNull Object value) {
+        Map<String, Object> map = new ConcurrentHashMap<>(entries.length);
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], ENTRY.getVolatile(entries, i + 1));
+        }
 
-    @Override
-    public <T> @NotNull Optional<T> getPropertyAsOptional(@NotNull PropertyKey<T> key) {
-        return (Optional<T>) getPropertyAsOptional(key.getIdentifier());
+        map.put(key, value);
+        return map;
     }
 
     @Override
-    public @NotNull Optional<Object> getPropertyAsOptional(@NotNull String key) {
-        return Optional.ofNullable(getData(true).get(key));
+    protected long lock(@NotNull String key) {
+        int stripe = PropertyLocks.stripe(this, key);
+        PropertyLocks.lock(stripe);
+        return stripe;
     }
 
     @Override
-    public @NotNull Collection<PropertyEntry> getProperties() {
-        return new EntryCollection();
+    protected void unlock(@NotNull String key, long stamp) {
+        PropertyLocks.unlock((int) stamp);
     }
 
     @Override
-    public void copyInto(@NotNull PropertyMap target) {
-        getData(false).forEach(target::setProperty);
+    protected @NotNull Runnable lockAll(@NotNull String @NotNull [] keys) {
+        int[] stripes = PropertyLocks.lockAll(this, keys);
+        return () -> PropertyLocks.unlockAll(stripes);
     }
 
     @Override
-    public void clear() {
-        data.set(null);
+    @SuppressWarnings("unchecked")
+    protected @NotNull Iterator<Map.Entry<String, Object>> entries() {
+        Object state = this.state;
+        if (state == null) {
+            return Collections.emptyIterator();
+        } else if (state instanceof Object[] entries) {
+            return new Iterator<>() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < entries.length;
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    if (index >= entries.length) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Map.Entry<String, Object> entry = Map.entry((String) entries[index], ENTRY.getAcquire(entries, index + 1));
+                    index += 2;
+                    return entry;
+                }
+
+            };
+        } else {
+            return ((Map<String, Object>) state).entrySet().iterator();
+        }
     }
 
     @Override
-    public @NotNull ObserverEmitter getEmitter() {
-        return emitter.updateAndGet(e -> Objects.requireNonNullElseGet(e, ObserverEmitter::create));
-    }
-
-    private class EntryCollection extends AbstractCollection<PropertyEntry> {
-
-        @Override
-        public int size() {
-            return getData(false).size();
-        }
-
-        @Override
-        public boolean isEmpty() {
-            return getData(false).isEmpty();
-        }
-
-        @Override
-        public boolean contains(Object o) {
-            if (o instanceof PropertyEntry(String key, Object obj)) {
-                Object val = getData(false).get(key);
-                return Objects.equals(obj, val);
-            } else {
-                return false;
-            }
-        }
-
-        @Override
-        public @NotNull Iterator<PropertyEntry> iterator() {
-            return new EntryIterator();
-        }
-
-        @Override
-        public boolean add(PropertyEntry entry) {
-            setProperty(entry.key(), entry.data());
-            return true;
-        }
-
-        @Override
-        public boolean remove(Object o) {
-            if (o instanceof PropertyEntry(String key, Object obj)) {
-                return getData(false).compute(key, (k, v) -> Objects.equals(v, obj) ? null : v) == null;
-            } else {
-                return false;
-            }
-        }
-
-        @Override
-        public void clear() {
-            PropertyMapImpl.this.clear();
+    protected int propertyCount() {
+        Object state = this.state;
+        if (state == null) {
+            return 0;
+        } else if (state instanceof Object[] entries) {
+            return entries.length >> 1;
+        } else {
+            return ((Map<?, ?>) state).size();
         }
-
     }
 
-    private class EntryIterator implements Iterator<PropertyEntry> {
-
-        private final Iterator<Map.Entry<String, Object>> iterator = getData(false).entrySet().iterator();
-
-        @Override
-        public boolean hasNext() {
-            return iterator.hasNext();
+    @Override
+    protected long storageFootprint() {
+        long bytes = MemoryEstimates.object(5, 4);
+        Object state = this.state;
+        if (state instanceof Object[] entries) {
+            bytes += MemoryEstimates.array(entries.length);
+        } else if (state != null) {
+            bytes += MemoryEstimates.hashMap(((Map<?, ?>) state).size());
         }
 
-        @Override
-        public PropertyEntry next() {
-            Map.Entry<String, Object> entry = iterator.next();
-            return entry == null ? null : new PropertyEntry(entry.getKey(), entry.getValue());
-        }
+        return bytes;
+    }
 
+    @Override
+    public void clear() {
+        state = null;
     }
 
 }
@@ -0,0 +1,279 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.property.PropertyMapOptions;
+import dev.tommyjs.jobserve.util.MemoryEstimates;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read optimized {@link dev.tommyjs.jobserve.property.PropertyMap} implementation for maps that are
+ * read far more often than written. Properties are stored inline in a single open addressing table
+ * with linear probing, guarded by a sequence lock held in the map itself. A read is two volatile
+ * loads of the version around a probe of the table, with no CAS, no allocation, and no indirection
+ * through a separate lock or node objects.
+ * <p>
+ * Writers are serialized per map on the global property lock stripes, and only hold the sequence
+ * lock while actually modifying the table, so slow update functions never stall readers.
+ * <p>
+ * A read is not faster than a {@link java.util.concurrent.ConcurrentHashMap} lookup. For a single
+ * hot map whose table stays in cache, {@link PropertyMapImpl} reads slightly faster. What this
+ * implementation saves is memory and cache misses across large numbers of small maps, since it
+ * needs no node objects or separate table. Do not use it for a few heavily read maps, for large
+ * maps, whose resizes copy the whole table while readers retry, or for maps written often, where
+ * every write makes concurrent reads retry.
+ */
+public class SeqLockPropertyMapImpl extends AbstractPropertyMap {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private volatile int version;
+    private Object @Nullable [] table;
+    private int size;
+
+    public SeqLockPropertyMapImpl() {
+        this(null);
+    }
+
+    public SeqLockPropertyMapImpl(@Nullable ObserverEmitter emitter) {
+        super(emitter);
+    }
+
+    public SeqLockPropertyMapImpl(@Nullable ObserverEmitter emitter, @NotNull PropertyMapOptions options) {
+        super(emitter, options);
+    }
+
+    @Override
+    protected @Nullable Object read(@NotNull String key) {
+        while (true) {
+            int version = this.version;
+            if ((version & 1) == 0) {
+                Object value = find(table, key);
+                VarHandle.loadLoadFence();
+                if (this.version == version) {
+                    return value;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    protected @Nullable Object write(@NotNull String key, @Nullable Object value) {
+        Object[] table = this.table;
+        if (table == null && value == null) {
+            return null;
+        }
+
+        beginWrite();
+        try {
+            if (table == null) {
+                table = this.table = new Object[INITIAL_CAPACITY * 2];
+            }
+
+            int mask = (table.length >> 1) - 1;
+            int index = hash(key) & mask;
+            while (table[index << 1] != null && !key.equals(table[index << 1])) {
+                index = (index + 1) & mask;
+            }
+
+            int slot = index << 1;
+            Object prev = table[slot + 1];
+            if (value == null) {
+                if (prev != null) {
+                    delete(table, index);
+                    size--;
+                }
+            } else if (prev != null) {
+                table[slot + 1] = value;
+            } else if ((size + 1) * 2 > table.length >> 1) {
+                table = this.table = resize(table);
+                insert(table, key, value);
+                size++;
+            } else {
+                table[slot + 1] = value;
+                table[slot] = key;
+                size++;
+            }
+
+            return prev;
+        } finally {
+            endWrite();
+        }
+    }
+
+    private void beginWrite() {
+        version = version + 1;
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        version = version + 1;
+    }
+
+    @Override
+    protected long lock(@NotNull String key) {
+        int stripe = PropertyLocks.stripe(this);
+        PropertyLocks.lock(stripe);
+        return stripe;
+    }
+
+    @Override
+    protected void unlock(@NotNull String key, long stamp) {
+        PropertyLocks.unlock((int) stamp);
+    }
+
+    @Override
+    protected @NotNull Runnable lockAll(@NotNull String @NotNull [] keys) {
+        int stripe = (int) lock("");
+        return () -> PropertyLocks.unlock(stripe);
+    }
+
+    @Override
+    protected @NotNull Iterator<Map.Entry<String, Object>> entries() {
+        Object[] snapshot;
+        while (true) {
+            int version = this.version;
+            if ((version & 1) == 0) {
+                Object[] table = this.table;
+                snapshot = table == null ? null : table.clone();
+                VarHandle.loadLoadFence();
+                if (this.version == version) {
+                    break;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+
+        List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        if (snapshot != null) {
+            for (int i = 0; i < snapshot.length; i += 2) {
+                if (snapshot[i] != null) {
+                    entries.add(Map.entry((String) snapshot[i], snapshot[i + 1]));
+                }
+            }
+        }
+
+        return entries.iterator();
+    }
+
+    @Override
+    protected int propertyCount() {
+        while (true) {
+            int version = this.version;
+            if ((version & 1) == 0) {
+                int size = this.size;
+                VarHandle.loadLoadFence();
+                if (this.version == version) {
+                    return size;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    protected long storageFootprint() {
+        Object[] table = this.table;
+        return MemoryEstimates.object(5, 8) + (table == null ? 0 : MemoryEstimates.array(table.length));
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock("");
+        try {
+            beginWrite();
+            table = null;
+            size = 0;
+            endWrite();
+        } finally {
+            unlock("", stamp);
+        }
+    }
+
+    /**
+     * Probes a table for a key. Safe to call on a table that is concurrently being modified, as
+     * long as the result is discarded if the version has changed. The probe is bounded by the
+     * table length, so a torn table can never cause an endless loop.
+     */
+    private static @Nullable Object find(Object @Nullable [] table, @NotNull String key) {
+        if (table == null) {
+            return null;
+        }
+
+        int mask = (table.length >> 1) - 1;
+        int index = hash(key) & mask;
+        for (int i = 0; i <= mask; i++) {
+            Object k = table[index << 1];
+            if (k == null) {
+                return null;
+            } else if (key.equals(k)) {
+                return table[(index << 1) + 1];
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    private static void insert(Object @NotNull [] table, @NotNull String key, @NotNull Object value) {
+        int mask = (table.length >> 1) - 1;
+        int index = hash(key) & mask;
+        while (table[index << 1] != null) {
+            index = (index + 1) & mask;
+        }
+
+        table[(index << 1) + 1] = value;
+        table[index << 1] = key;
+    }
+
+    /**
+     * Removes the entry at an index with backward shift deletion, so no tombstones are needed and
+     * probe sequences stay as short as possible.
+     */
+    private static void delete(Object @NotNull [] table, int index) {
+        int mask = (table.length >> 1) - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (table[next << 1] != null) {
+            int home = hash((String) table[next << 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[(hole << 1) + 1] = table[(next << 1) + 1];
+                table[hole << 1] = table[next << 1];
+                hole = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        table[hole << 1] = null;
+        table[(hole << 1) + 1] = null;
+    }
+
+    private static Object @NotNull [] resize(Object @NotNull [] table) {
+        Object[] resized = new Object[table.length * 2];
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null) {
+                insert(resized, (String) table[i], table[i + 1]);
+            }
+        }
+
+        return resized;
+    }
+
+    private static int hash(@NotNull String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,36 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import dev.tommyjs.jobserve.property.UpdateScheduler;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link UpdateScheduler} implementation. Maps enqueue themselves on a lock-free queue the first
+ * time they change after a flush, guarded by a flag in the map itself, so the queue holds each
+ * changed map once, however many writes it received.
+ */
+public class UpdateSchedulerImpl implements UpdateScheduler {
+
+    private final Queue<AbstractPropertyMap> pending = new ConcurrentLinkedQueue<>();
+
+    void schedule(@NotNull AbstractPropertyMap map) {
+        pending.add(map);
+    }
+
+    @Override
+    public void flush() {
+        int count = pending.size();
+        AbstractPropertyMap map;
+        while (count-- > 0 && (map = pending.poll()) != null) {
+            map.flushUpdates();
+        }
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+}
@@ -0,0 +1,91 @@
+package dev.tommyjs.jobserve.property.impl;
+
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.property.PropertyMap;
+import dev.tommyjs.jobserve.property.PropertyUpdateView;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Per thread stack of reusable {@link PropertyUpdateView}s. Subscribers commonly write other
+ * properties while handling an update, so each nested emission takes the next view on the stack
+ * rather than overwriting the view still being delivered. Once the stack has grown to the
+ * deepest nesting on a thread, emitting a view never allocates.
+ */
+final class UpdateViews {
+
+    private static final ThreadLocal<UpdateViews> VIEWS = ThreadLocal.withInitial(UpdateViews::new);
+
+    private ViewImpl @NotNull [] views = new ViewImpl[4];
+    private int depth;
+
+    private UpdateViews() {
+
+    }
+
+    static void emit(@NotNull ObserverEmitter emitter, @NotNull String key, @Nullable Object prev, @Nullable Object curr) {
+        UpdateViews views = VIEWS.get();
+        ViewImpl view = views.push();
+        view.key = key;
+        view.prev = prev;
+        view.curr = curr;
+
+        try {
+            emitter.emit(PropertyMap.UPDATE_PROPERTY_VIEW_KEY, view);
+        } finally {
+            view.key = null;
+            view.prev = null;
+            view.curr = null;
+            views.depth--;
+        }
+    }
+
+    private @NotNull ViewImpl push() {
+        if (depth == views.length) {
+            views = Arrays.copyOf(views, depth * 2);
+        }
+
+        ViewImpl view = views[depth];
+        if (view == null) {
+            view = views[depth] = new ViewImpl();
+        }
+
+        depth++;
+        return view;
+    }
+
+    private static final class ViewImpl implements PropertyUpdateView {
+
+        private String key;
+        private Object prev;
+        private Object curr;
+
+        @Override
+        public @NotNull String key() {
+            if (key == null) {
+                throw new IllegalStateException("Property update view used outside of its emission");
+            }
+
+            return key;
+        }
+
+        @Override
+        public @Nullable Object prev() {
+            return prev;
+        }
+
+        @Override
+        public @Nullable Object curr() {
+            return curr;
+        }
+
+        @Override
+        public String toString() {
+            return "PropertyUpdateView[key=" + key + ", prev=" + prev + ", curr=" + curr + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,37 @@
+package dev.tommyjs.jobserve.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An object confined to a single owning thread. Confined objects skip all synchronization, so they
+ * must only ever be used by their owner. Ownership starts with the creating thread, and can be
+ * handed off by calling {@link #release()} on the owning thread and then {@link #acquire()} on the
+ * new thread. The release and acquire pair makes every write of the previous owner visible to the
+ * new owner.
+ * <p>
+ * Ownership is checked on every access with Java assertions only, so misuse is caught during
+ * development and testing at no cost in production.
+ */
+public interface Confined {
+
+    /**
+     * Returns the thread currently owning this object, or null if it has been released and not
+     * acquired since.
+     * @return owning thread
+     */
+    @Nullable Thread getOwner();
+
+    /**
+     * Releases ownership of this object, so that another thread can acquire it.
+     * @throws IllegalStateException if the current thread is not the owner
+     */
+    void release();
+
+    /**
+     * Acquires ownership of this object for the current thread. Acquiring an object already owned
+     * by the current thread has no effect.
+     * @throws IllegalStateException if the object is owned by another thread
+     */
+    void acquire();
+
+}
@@ -0,0 +1,194 @@
+package dev.tommyjs.jobserve.util;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A variant of {@link EmissionWatcher} which records the number of accepted emissions, and the first
+ * and last accepted values, between starting and finishing the recorder. Recorders can also be
+ * started for a fixed time window, after which they finish themselves and report to a callback.
+ * <p>
+ * Recording is lock-free, and windows are timed by the shared {@link TimingWheel}, so very large
+ * numbers of recorders can be active at once.
+ * @param <T> emission value type
+ */
+public final class EmissionRecorder<T> {
+
+    private static final VarHandle COUNT;
+    private static final VarHandle FINISHED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COUNT = lookup.findVarHandle(EmissionRecorder.class, "count", long.class);
+            FINISHED = lookup.findVarHandle(EmissionRecorder.class, "finished", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final @NotNull Predicate<T> filter;
+    private volatile @Nullable ObserverSub subscription;
+    private volatile @Nullable TimingWheel.Timeout timeout;
+
+    private volatile long count;
+    private volatile @Nullable T first;
+    private volatile @Nullable T last;
+    private volatile boolean finished;
+
+    private EmissionRecorder(@NotNull Predicate<T> filter) {
+        this.filter = filter;
+    }
+
+    private void record(T value) {
+        if (!filter.test(value)) {
+            return;
+        }
+
+        long prev = (long) COUNT.getAndAdd(this, 1L);
+        if (prev == 0) {
+            first = value;
+        }
+
+        last = value;
+    }
+
+    /**
+     * Returns the number of accepted emissions recorded so far.
+     * @return emission count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the first accepted emission value, or null if there were no accepted emissions.
+     * @return first emission value
+     */
+    public @Nullable T first() {
+        return first;
+    }
+
+    /**
+     * Returns the most recent accepted emission value, or null if there were no accepted emissions.
+     * @return last emission value
+     */
+    public @Nullable T last() {
+        return last;
+    }
+
+    /**
+     * Checks whether this recorder has been finished, either explicitly or by its window closing.
+     * @return whether the recorder is finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Terminates this recorder and returns the number of accepted emissions between starting the
+     * recorder and now. This method will cancel the {@link ObserverSub} associated with this recorder,
+     * and the window of the recorder if it has one.
+     * @return emission count
+     */
+    public long finish() {
+        if (!terminate()) {
+            throw new IllegalStateException("Emission recorder already finished");
+        }
+
+        return count;
+    }
+
+    private boolean terminate() {
+        if (!FINISHED.compareAndSet(this, false, true)) {
+            return false;
+        }
+
+        TimingWheel.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        ObserverSub subscription = this.subscription;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts a new emission recorder with a given observed object, key, and filter. This method will
+     * immediately subscribe. Emissions from the object will only be recorded if they pass the given
+     * filter.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @param filter record filter
+     * @return started emission recorder
+     */
+    public static <T> @NotNull EmissionRecorder<T> start(@NotNull Observable object, @NotNull ObserverKey<T> key, @NotNull Predicate<T> filter) {
+        EmissionRecorder<T> recorder = new EmissionRecorder<>(filter);
+        ObserverSub subscription = object.observe(key, recorder::record);
+        recorder.subscription = subscription;
+
+        // terminate may run on another thread, such as the timing wheel, and could have missed
+        // the subscription if it finished the recorder before the subscription was assigned
+        if (recorder.finished) {
+            subscription.cancel();
+        }
+
+        return recorder;
+    }
+
+    /**
+     * Starts a new emission recorder with a given observed object, key, and default filter. This
+     * method will immediately subscribe. Emissions from the object will always be recorded.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @return started emission recorder
+     */
+    public static <T> @NotNull EmissionRecorder<T> start(@NotNull Observable object, @NotNull ObserverKey<T> key) {
+        return start(object, key, _t -> true);
+    }
+
+    /**
+     * Starts a new emission recorder which finishes itself after a fixed window. Once the window has
+     * elapsed, the recorder is finished and passed to the callback on the common fork-join pool, the
+     * {@link TimingWheel} only timing the window. If the recorder is finished explicitly before the window has
+     * elapsed, the callback is never called.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @param filter record filter
+     * @param window duration to record for
+     * @param callback callback to be called with the finished recorder
+     * @return started emission recorder
+     */
+    public static <T> @NotNull EmissionRecorder<T> startWindow(@NotNull Observable object, @NotNull ObserverKey<T> key,
+                                                               @NotNull Predicate<T> filter, @NotNull Duration window,
+                                                               @NotNull Consumer<EmissionRecorder<T>> callback) {
+        EmissionRecorder<T> recorder = start(object, key, filter);
+        TimingWheel.Timeout timeout = TimingWheel.shared().schedule(() -> ForkJoinPool.commonPool().execute(() -> {
+            if (recorder.terminate()) {
+                callback.accept(recorder);
+            }
+        }), window);
+
+        recorder.timeout = timeout;
+        if (recorder.finished) {
+            timeout.cancel();
+        }
+
+        return recorder;
+    }
+
+}
@@ -0,0 +1,212 @@
+package dev.tommyjs.jobserve.util;
+
+import dev.tommyjs.jobserve.observer.Observable;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A variant of {@link EmissionWatcher} which runs an action in reaction to accepted emissions,
+ * either once after a number of emissions, or after emissions have stopped for a quiet period.
+ * <p>
+ * Debounced triggers keep a single pending {@link TimingWheel} task while emissions are arriving,
+ * rather than rescheduling on every emission, so very large numbers of triggers can be active at
+ * once. The wheel only times the quiet period, and hands the action to the common fork-join pool,
+ * so slow actions never hold up the wheel thread.
+ * @param <T> emission value type
+ */
+public final class EmissionTrigger<T> implements ObserverSub {
+
+    private static final VarHandle COUNT;
+    private static final VarHandle ARMED;
+    private static final VarHandle CANCELLED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COUNT = lookup.findVarHandle(EmissionTrigger.class, "count", long.class);
+            ARMED = lookup.findVarHandle(EmissionTrigger.class, "armed", boolean.class);
+            CANCELLED = lookup.findVarHandle(EmissionTrigger.class, "cancelled", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final @NotNull Predicate<T> filter;
+    private final @NotNull Consumer<T> action;
+    private final long threshold;
+    private final long quietNanos;
+    private volatile @Nullable ObserverSub subscription;
+
+    private volatile long count;
+    private volatile boolean cancelled;
+
+    private volatile boolean armed;
+    private volatile long lastEmission;
+    private volatile @Nullable T latest;
+    private volatile @Nullable TimingWheel.Timeout timeout;
+
+    private EmissionTrigger(@NotNull Predicate<T> filter, @NotNull Consumer<T> action, long threshold, long quietNanos) {
+        this.filter = filter;
+        this.action = action;
+        this.threshold = threshold;
+        this.quietNanos = quietNanos;
+    }
+
+    private void accept(T value) {
+        if (cancelled || !filter.test(value)) {
+            return;
+        }
+
+        if (quietNanos > 0) {
+            lastEmission = System.nanoTime();
+            latest = value;
+            if (ARMED.compareAndSet(this, false, true)) {
+                schedule(quietNanos);
+            }
+        } else if ((long) COUNT.getAndAdd(this, 1L) + 1 == threshold && terminate()) {
+            action.accept(value);
+        }
+    }
+
+    private void schedule(long delay) {
+        timeout = TimingWheel.shared().schedule(() -> ForkJoinPool.commonPool().execute(this::settle), delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs on the common fork-join pool once the quiet period since arming may have elapsed. If there were
+     * emissions since, the trigger is rescheduled for the remainder of the quiet period instead.
+     * Emissions racing with disarming either see the trigger armed, and are picked up by the
+     * recheck here, or arm it themselves.
+     */
+    private void settle() {
+        if (cancelled) {
+            return;
+        }
+
+        long last = lastEmission;
+        long remaining = quietNanos - (System.nanoTime() - last);
+        if (remaining > 0) {
+            schedule(remaining);
+            return;
+        }
+
+        T value = latest;
+        armed = false;
+        if (lastEmission != last) {
+            if (ARMED.compareAndSet(this, false, true)) {
+                schedule(quietNanos);
+            }
+
+            return;
+        }
+
+        action.accept(value);
+    }
+
+    /**
+     * Returns the number of accepted emissions so far. Debounced triggers do not count emissions.
+     * @return emission count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Checks whether this trigger has been cancelled, either explicitly or by firing once.
+     * @return whether the trigger is cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels this trigger, including any pending debounced action.
+     */
+    @Override
+    public void cancel() {
+        terminate();
+    }
+
+    private boolean terminate() {
+        if (!CANCELLED.compareAndSet(this, false, true)) {
+            return false;
+        }
+
+        TimingWheel.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        ObserverSub subscription = this.subscription;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts a new trigger which runs an action once, with the value of the Nth accepted emission,
+     * and then cancels itself. The action is run on the emitting thread.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @param filter trigger filter
+     * @param count number of accepted emissions before running the action
+     * @param action action to run
+     * @return started emission trigger
+     */
+    public static <T> @NotNull EmissionTrigger<T> afterCount(@NotNull Observable object, @NotNull ObserverKey<T> key,
+                                                             @NotNull Predicate<T> filter, long count, @NotNull Consumer<T> action) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+
+        return start(object, key, new EmissionTrigger<>(filter, action, count, 0));
+    }
+
+    /**
+     * Starts a new trigger which runs an action with the latest accepted emission value, once there
+     * have been no accepted emissions for a quiet period. The trigger stays active after running the
+     * action, and will run it again after the next burst of emissions, until cancelled. The action
+     * is run on the common fork-join pool.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @param filter trigger filter
+     * @param quiet quiet period after the last accepted emission
+     * @param action action to run
+     * @return started emission trigger
+     */
+    public static <T> @NotNull EmissionTrigger<T> debounce(@NotNull Observable object, @NotNull ObserverKey<T> key,
+                                                           @NotNull Predicate<T> filter, @NotNull Duration quiet, @NotNull Consumer<T> action) {
+        long quietNanos = quiet.toNanos();
+        if (quietNanos <= 0) {
+            throw new IllegalArgumentException("Quiet period must be positive");
+        }
+
+        return start(object, key, new EmissionTrigger<>(filter, action, 0, quietNanos));
+    }
+
+    private static <T> @NotNull EmissionTrigger<T> start(@NotNull Observable object, @NotNull ObserverKey<T> key, @NotNull EmissionTrigger<T> trigger) {
+        ObserverSub subscription = object.observe(key, trigger::accept);
+        trigger.subscription = subscription;
+
+        // an emission may have run the action and terminated the trigger before the subscription
+        // was assigned, in which case terminate could not cancel it
+        if (trigger.cancelled) {
+            subscription.cancel();
+        }
+
+        return trigger;
+    }
+
+}
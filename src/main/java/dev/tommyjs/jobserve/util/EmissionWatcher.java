@@ -1,11 +1,16 @@
 package dev.tommyjs.jobserve.util;
 
+import dev.tommyjs.jobserve.observer.EmissionProbe;
 import dev.tommyjs.jobserve.observer.Observable;
-import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.function.Predicate;
 
 /**
@@ -13,31 +18,130 @@ import java.util.function.Predicate;
  * usage of this class is to first obtain a watcher for a specific {@link ObserverKey} on a specific
  * {@link Observable} object with {@link EmissionWatcher#start}. Then at some later point in time,
  * {@link EmissionWatcher#finish()} can be called, and this will return whether there was an emission
- * between starting the watcher and now.]
+ * between starting the watcher and now.
+ * <p>
+ * For hot paths, {@link EmissionWatcher#watch} returns a pooled watcher intended for use in a
+ * try-with-resources block. Closing a pooled watcher returns it to a thread local pool, and the
+ * watcher keeps the probe it attached, so in steady state a watch cycle does not allocate. Each
+ * watch increments the generation of the watcher, and arms the probe with that generation.
+ * <p>
+ * A probe is only reused by a later watch of the same key on the same object, and a watch of
+ * anything else attaches a new probe, which is the only allocation of a pooled watch. An emission
+ * which reaches the probe of an earlier watch after it was closed therefore never triggers a
+ * later watch of another key or object. On the same key and object it is no different from an
+ * emission in progress while the probe is attached, which may be seen by any watch. A pooled
+ * watcher must not be used after it has been closed.
  */
-public final class EmissionWatcher {
+public final class EmissionWatcher implements AutoCloseable {
 
-    private final @NotNull ObserverSub subscription;
-    private final @NotNull AtomicBoolean trip;
-    private final @NotNull AtomicBoolean finished = new AtomicBoolean();
+    private static final int POOL_SIZE = 16;
+    private static final Predicate<Object> ACCEPT_ALL = _v -> true;
+    private static final ThreadLocal<ArrayDeque<EmissionWatcher>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final VarHandle FINISHED;
+    private static final VarHandle GENERATION;
 
-    private EmissionWatcher(@NotNull ObserverSub subscription, @NotNull AtomicBoolean trip) {
-        this.subscription = subscription;
-        this.trip = trip;
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            FINISHED = lookup.findVarHandle(EmissionWatcher.class, "finished", boolean.class);
+            GENERATION = lookup.findVarHandle(EmissionWatcher.class, "generation", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final boolean pooled;
+
+    private @Nullable ObserverEmitter emitter;
+    private @Nullable ObserverKey<?> key;
+    private @Nullable Predicate<Object> filter;
+    private @Nullable Probe probe;
+    private volatile long generation; // watch generation, shifted left, with the lowest bit set once triggered
+    private volatile boolean finished;
+
+    private EmissionWatcher(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    private void accept(long expected, @Nullable Object value) {
+        if (generation != expected) {
+            return;
+        }
+
+        Predicate<Object> filter = this.filter;
+        if (filter != null && filter.test(value)) {
+            GENERATION.compareAndSet(this, expected, expected | 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private @NotNull EmissionWatcher begin(@NotNull Observable object, @NotNull ObserverKey<?> key, @NotNull Predicate<?> filter) {
+        long generation = ((this.generation >>> 1) + 1) << 1;
+        ObserverEmitter emitter = object.getEmitter();
+        Probe probe = this.probe;
+        if (probe == null || probe.key != key || probe.emitter.get() != emitter) {
+            probe = new Probe(emitter, key);
+            this.probe = probe;
+        }
+
+        this.emitter = emitter;
+        this.key = key;
+        this.filter = (Predicate<Object>) filter;
+        this.finished = false;
+        this.generation = generation;
+        probe.generation = generation;
+
+        emitter.attach(key, probe);
+        return this;
+    }
+
+    /**
+     * Returns whether there has been an emission since starting this watcher, without finishing it.
+     * @return whether the watcher was triggered
+     */
+    public boolean isTriggered() {
+        return (generation & 1) != 0;
     }
 
     /**
      * Terminates this watcher and returns whether there was an emission between starting the watcher
-     * and now. This method will cancel the {@link ObserverSub} associated with this watcher.
+     * and now. This method will detach the watcher from the observed object.
      * @return whether the watcher was triggered
      */
     public boolean finish() {
-        if (!finished.compareAndSet(false, true)) {
+        if (!terminate()) {
             throw new IllegalStateException("Emission watcher already finished");
         }
 
-        subscription.cancel();
-        return trip.get();
+        return isTriggered();
+    }
+
+    private boolean terminate() {
+        if (emitter == null || !FINISHED.compareAndSet(this, false, true)) {
+            return false;
+        }
+
+        emitter.detach(key, probe);
+        return true;
+    }
+
+    /**
+     * Finishes this watcher if it has not been finished yet. Pooled watchers are additionally
+     * returned to the pool of the current thread, and must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        terminate();
+        if (pooled && emitter != null) {
+            emitter = null;
+            key = null;
+            filter = null;
+
+            ArrayDeque<EmissionWatcher> pool = POOL.get();
+            if (pool.size() < POOL_SIZE) {
+                pool.push(this);
+            }
+        }
     }
 
     /**
@@ -50,12 +154,7 @@ public final class EmissionWatcher {
      * @return started emission watcher
      */
     public static <T> EmissionWatcher start(@NotNull Observable object, @NotNull ObserverKey<T> key, @NotNull Predicate<T> filter) {
-        AtomicBoolean trip = new AtomicBoolean();
-        ObserverSub sub = object.observe(key, v -> {
-            if (filter.test(v)) trip.set(true);
-        });
-
-        return new EmissionWatcher(sub, trip);
+        return new EmissionWatcher(false).begin(object, key, filter);
     }
 
     /**
@@ -66,7 +165,57 @@ public final class EmissionWatcher {
      * @return started emission watcher
      */
     public static <T> EmissionWatcher start(@NotNull Observable object, @NotNull ObserverKey<T> key) {
-        return start(object, key, _t -> true);
+        return new EmissionWatcher(false).begin(object, key, ACCEPT_ALL);
+    }
+
+    /**
+     * Starts a pooled emission watcher with a given observed object, key, and trigger filter. The
+     * watcher must be closed once done with, after which it is recycled.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @param filter trigger filter
+     * @return started pooled emission watcher
+     */
+    public static <T> EmissionWatcher watch(@NotNull Observable object, @NotNull ObserverKey<T> key, @NotNull Predicate<T> filter) {
+        return pooled().begin(object, key, filter);
+    }
+
+    /**
+     * Starts a pooled emission watcher with a given observed object, key, and default trigger filter.
+     * The watcher must be closed once done with, after which it is recycled.
+     * @param object observable object
+     * @param key observer key to subscribe to
+     * @return started pooled emission watcher
+     */
+    public static <T> EmissionWatcher watch(@NotNull Observable object, @NotNull ObserverKey<T> key) {
+        return pooled().begin(object, key, ACCEPT_ALL);
+    }
+
+    private static @NotNull EmissionWatcher pooled() {
+        EmissionWatcher watcher = POOL.get().poll();
+        return watcher == null ? new EmissionWatcher(true) : watcher;
+    }
+
+    /**
+     * The probe of a watcher, kept across the watches of one key on one object. It only weakly
+     * references the emitter, so a pooled watcher does not keep the object it last watched alive.
+     */
+    private final class Probe implements EmissionProbe {
+
+        private final @NotNull WeakReference<ObserverEmitter> emitter;
+        private final @NotNull ObserverKey<?> key;
+        private volatile long generation;
+
+        private Probe(@NotNull ObserverEmitter emitter, @NotNull ObserverKey<?> key) {
+            this.emitter = new WeakReference<>(emitter);
+            this.key = key;
+        }
+
+        @Override
+        public void onEmission(@Nullable Object value) {
+            accept(generation, value);
+        }
+
     }
 
 }
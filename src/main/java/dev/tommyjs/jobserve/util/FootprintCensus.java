@@ -0,0 +1,119 @@
+package dev.tommyjs.jobserve.util;
+
+import dev.tommyjs.jobserve.observer.EmitterFootprint;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.property.PropertyMap;
+import dev.tommyjs.jobserve.property.PropertyMapFootprint;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the footprints of a population of property maps and emitters, to find which property
+ * keys and observer keys dominate heap usage. Maps and emitters can be added concurrently, for
+ * example from a parallel stream over all entities.
+ */
+public final class FootprintCensus {
+
+    private final LongAdder maps = new LongAdder();
+    private final LongAdder emitters = new LongAdder();
+    private final LongAdder propertyBytes = new LongAdder();
+    private final LongAdder emitterBytes = new LongAdder();
+    private final Map<String, LongAdder> propertyCounts = new ConcurrentHashMap<>();
+    private final Map<ObserverKey<?>, LongAdder> subscriberCounts = new ConcurrentHashMap<>();
+
+    private FootprintCensus() {
+
+    }
+
+    /**
+     * Adds a property map, and its emitter if created, to this census.
+     * @param map property map
+     */
+    public void add(@NotNull PropertyMap map) {
+        add(map.footprint());
+    }
+
+    public void add(@NotNull PropertyMapFootprint footprint) {
+        maps.increment();
+        propertyBytes.add(footprint.estimatedBytes());
+        for (String key : footprint.keys()) {
+            propertyCounts.computeIfAbsent(key, _k -> new LongAdder()).increment();
+        }
+
+        if (footprint.emitter() != null) {
+            add(footprint.emitter());
+        }
+    }
+
+    /**
+     * Adds an emitter to this census.
+     * @param emitter observer emitter
+     */
+    public void add(@NotNull ObserverEmitter emitter) {
+        add(emitter.footprint());
+    }
+
+    public void add(@NotNull EmitterFootprint footprint) {
+        emitters.increment();
+        emitterBytes.add(footprint.estimatedBytes());
+        for (Map.Entry<ObserverKey<?>, Integer> entry : footprint.subscribers().entrySet()) {
+            subscriberCounts.computeIfAbsent(entry.getKey(), _k -> new LongAdder()).add(entry.getValue());
+        }
+    }
+
+    public long getMapCount() {
+        return maps.sum();
+    }
+
+    public long getEmitterCount() {
+        return emitters.sum();
+    }
+
+    public long getPropertyBytes() {
+        return propertyBytes.sum();
+    }
+
+    public long getEmitterBytes() {
+        return emitterBytes.sum();
+    }
+
+    public long getTotalBytes() {
+        return getPropertyBytes() + getEmitterBytes();
+    }
+
+    /**
+     * Returns the number of maps storing each property, by identifier.
+     * @return property counts
+     */
+    public @NotNull Map<String, Long> getPropertyCounts() {
+        return snapshot(propertyCounts);
+    }
+
+    /**
+     * Returns the total number of subscribers of each observer key across all emitters.
+     * @return subscriber counts
+     */
+    public @NotNull Map<ObserverKey<?>, Long> getSubscriberCounts() {
+        return snapshot(subscriberCounts);
+    }
+
+    private static <K> @NotNull Map<K, Long> snapshot(@NotNull Map<K, LongAdder> counts) {
+        Map<K, Long> snapshot = new ConcurrentHashMap<>(counts.size());
+        counts.forEach((key, count) -> snapshot.put(key, count.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Creates a new, empty census.
+     * @return new census
+     */
+    public static @NotNull FootprintCensus create() {
+        return new FootprintCensus();
+    }
+
+}
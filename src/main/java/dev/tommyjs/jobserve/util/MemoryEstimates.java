@@ -0,0 +1,58 @@
+package dev.tommyjs.jobserve.util;
+
+/**
+ * Shallow heap size estimates, assuming a 64-bit JVM with compressed references and the default
+ * 8 byte object alignment. Used by footprint reports, which only need to be accurate enough to
+ * compare keys, listeners and representations against each other.
+ */
+public final class MemoryEstimates {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int HASH_MAP = 64;
+    private static final int HASH_NODE = 32;
+
+    private MemoryEstimates() {
+
+    }
+
+    /**
+     * Estimates the shallow size of an object.
+     * @param references number of reference fields
+     * @param primitiveBytes total size of primitive fields
+     * @return estimated size in bytes
+     */
+    public static long object(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    /**
+     * Estimates the shallow size of a reference array.
+     * @param length array length
+     * @return estimated size in bytes
+     */
+    public static long array(int length) {
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    /**
+     * Estimates the size of a hash map and its nodes, excluding keys and values, at the default
+     * load factor.
+     * @param size number of entries
+     * @return estimated size in bytes
+     */
+    public static long hashMap(int size) {
+        if (size == 0) {
+            return HASH_MAP;
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+        return HASH_MAP + array(Math.max(16, capacity)) + (long) size * HASH_NODE;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,281 @@
+package dev.tommyjs.jobserve.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hierarchical timing wheel, for scheduling very large numbers of short tasks with coarse
+ * precision. Scheduling and cancelling are O(1) and lock-free, and the cost of each tick only
+ * depends on the number of tasks that expire or cascade in that tick, not on the number of
+ * scheduled tasks.
+ * <p>
+ * All tasks are run on the single worker thread of the wheel, so they must be short and must not
+ * block. Tasks are never run early, and are run at most one tick late under normal load.
+ */
+public final class TimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final TimingWheel SHARED = new TimingWheel(Duration.ofMillis(10), "JObserve Timing Wheel");
+
+    private final long tickNanos;
+    private final @NotNull String name;
+    private final @NotNull AtomicReference<TimeoutImpl> pending;
+    private final TimeoutImpl @NotNull [] @NotNull [] wheels;
+    private final long origin;
+
+    private volatile @Nullable Thread worker;
+    private volatile boolean idle;
+    private long tick;
+    private int size;
+
+    /**
+     * Creates a new timing wheel. The worker thread is started lazily on the first schedule.
+     * @param tick duration of a single tick, which is also the precision of the wheel
+     * @param name name of the worker thread
+     */
+    public TimingWheel(@NotNull Duration tick, @NotNull String name) {
+        this.tickNanos = tick.toNanos();
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+
+        this.name = name;
+        this.pending = new AtomicReference<>();
+        this.wheels = new TimeoutImpl[LEVELS][SLOTS];
+        this.origin = System.nanoTime();
+    }
+
+    /**
+     * Schedules a task to run once after a given delay.
+     * @param task task to run on the wheel thread
+     * @param delay delay before running the task
+     * @return timeout handle, which can be used to cancel the task
+     */
+    public @NotNull Timeout schedule(@NotNull Runnable task, @NotNull Duration delay) {
+        return schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Schedules a task to run once after a given delay.
+     * @param task task to run on the wheel thread
+     * @param delay delay before running the task
+     * @param unit unit of the delay
+     * @return timeout handle, which can be used to cancel the task
+     */
+    public @NotNull Timeout schedule(@NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay));
+        TimeoutImpl timeout = new TimeoutImpl(task, (deadline - origin + tickNanos - 1) / tickNanos);
+
+        TimeoutImpl head;
+        do {
+            head = pending.get();
+            timeout.next = head;
+        } while (!pending.compareAndSet(head, timeout));
+
+        Thread worker = this.worker;
+        if (worker == null) {
+            start();
+        } else if (idle) {
+            LockSupport.unpark(worker);
+        }
+
+        return timeout;
+    }
+
+    private synchronized void start() {
+        if (worker == null) {
+            Thread thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            worker = thread;
+            thread.start();
+        }
+    }
+
+    private void run() {
+        tick = currentTick();
+        while (true) {
+            transferPending();
+            long target = currentTick();
+            while (tick < target) {
+                advance();
+                transferPending();
+            }
+
+            if (size == 0 && pending.get() == null) {
+                idle = true;
+                if (pending.get() == null) {
+                    LockSupport.park(this);
+                }
+
+                idle = false;
+                tick = Math.max(tick, currentTick());
+            } else {
+                long wake = origin + (tick + 1) * tickNanos;
+                LockSupport.parkNanos(this, wake - System.nanoTime());
+            }
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - origin) / tickNanos;
+    }
+
+    private void transferPending() {
+        TimeoutImpl timeout = pending.getAndSet(null);
+        while (timeout != null) {
+            TimeoutImpl next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Places a timeout in the wheel level matching its remaining ticks, or runs it immediately if
+     * it is already due. Timeouts beyond the range of the top level are parked in its furthest
+     * slot, and placed again when that slot cascades.
+     */
+    private void place(@NotNull TimeoutImpl timeout) {
+        if (timeout.state != TimeoutImpl.PENDING) {
+            return;
+        }
+
+        long delta = timeout.deadline - tick;
+        if (delta <= 0) {
+            expire(timeout);
+            return;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1)) || level == LEVELS - 1) {
+                long deadline = Math.min(timeout.deadline, tick + (1L << (SLOT_BITS * (level + 1))) - 1);
+                int slot = (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+                timeout.next = wheels[level][slot];
+                wheels[level][slot] = timeout;
+                size++;
+                return;
+            }
+        }
+    }
+
+    private void advance() {
+        tick++;
+        for (int level = 1; level < LEVELS; level++) {
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                break;
+            }
+
+            int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+            TimeoutImpl timeout = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (timeout != null) {
+                TimeoutImpl next = timeout.next;
+                size--;
+                place(timeout);
+                timeout = next;
+            }
+        }
+
+        int slot = (int) tick & SLOT_MASK;
+        TimeoutImpl timeout = wheels[0][slot];
+        wheels[0][slot] = null;
+        while (timeout != null) {
+            TimeoutImpl next = timeout.next;
+            size--;
+            if (timeout.deadline <= tick) {
+                expire(timeout);
+            } else {
+                place(timeout);
+            }
+
+            timeout = next;
+        }
+    }
+
+    private void expire(@NotNull TimeoutImpl timeout) {
+        if (TimeoutImpl.STATE.compareAndSet(timeout, TimeoutImpl.PENDING, TimeoutImpl.EXPIRED)) {
+            try {
+                timeout.task.run();
+            } catch (Throwable e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared timing wheel, with a tick of 10 milliseconds.
+     * @return shared timing wheel
+     */
+    public static @NotNull TimingWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Represents a task scheduled on a {@link TimingWheel}.
+     */
+    public interface Timeout {
+
+        /**
+         * Cancels this timeout. The task will never run after this method returns true.
+         * @return whether the timeout was cancelled before it ran
+         */
+        boolean cancel();
+
+        /**
+         * Checks whether the task of this timeout has been run.
+         * @return whether the timeout has expired
+         */
+        boolean isExpired();
+
+    }
+
+    private static final class TimeoutImpl implements Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private static final VarHandle STATE;
+
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(TimeoutImpl.class, "state", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final @NotNull Runnable task;
+        private final long deadline;
+        private volatile int state;
+        private @Nullable TimeoutImpl next;
+
+        private TimeoutImpl(@NotNull Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+    }
+
+}
@@ -1,11 +1,29 @@
 package dev.tommyjs.jobserve;
 
+import com.sun.management.ThreadMXBean;
 import dev.tommyjs.jobserve.dummy.DummyObservable;
 import dev.tommyjs.jobserve.observer.Observable;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.ObserverSub;
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import dev.tommyjs.jobserve.util.EmissionRecorder;
+import dev.tommyjs.jobserve.util.EmissionTrigger;
 import dev.tommyjs.jobserve.util.EmissionWatcher;
+import dev.tommyjs.jobserve.util.TimingWheel;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
 public class EmissionWatcherTest {
 
     @Test
@@ -50,4 +68,217 @@ public class EmissionWatcherTest {
         assert watcher.finish();
     }
 
+    @Test
+    public void PooledWatchTest() {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        EmissionWatcher first;
+        try (EmissionWatcher watcher = EmissionWatcher.watch(observable, integerKey, i -> i > 50)) {
+            observable.emit(integerKey, 20);
+            assert !watcher.isTriggered();
+
+            observable.emit(integerKey, 75);
+            assert watcher.isTriggered();
+            first = watcher;
+        }
+
+        try (EmissionWatcher watcher = EmissionWatcher.watch(observable, integerKey)) {
+            assert watcher == first;
+            assert !watcher.isTriggered();
+
+            observable.emit(integerKey, 10);
+            assert watcher.finish();
+        }
+
+        try (EmissionWatcher watcher = EmissionWatcher.watch(observable, integerKey)) {
+            assert watcher == first;
+        }
+
+        observable.emit(integerKey, 10);
+        assert !first.isTriggered();
+    }
+
+    @Test
+    public void WatchAllocationTest() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> observedKey = ObserverKey.register(Integer.class);
+        ObserverKey<Integer> unobservedKey = ObserverKey.register(Integer.class);
+        observable.observe(observedKey, value -> {});
+
+        for (ObserverKey<Integer> key : List.of(observedKey, unobservedKey)) {
+            int triggered = 0;
+            for (int i = 0; i < 200_000; i++) {
+                try (EmissionWatcher watcher = EmissionWatcher.watch(observable, key)) {
+                    if (watcher.isTriggered()) {
+                        triggered++;
+                    }
+                }
+            }
+
+            long thread = Thread.currentThread().threadId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100_000; i++) {
+                try (EmissionWatcher watcher = EmissionWatcher.watch(observable, key)) {
+                    if (watcher.isTriggered()) {
+                        triggered++;
+                    }
+                }
+            }
+
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            assert triggered == 0;
+            assert allocated < 16_384 : allocated + " bytes allocated by 100000 pooled watches";
+        }
+    }
+
+    @Test
+    public void RecorderTest() {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        EmissionRecorder<Integer> recorder = EmissionRecorder.start(observable, integerKey, i -> i > 50);
+        observable.emit(integerKey, 20);
+        observable.emit(integerKey, 60);
+        observable.emit(integerKey, 70);
+        observable.emit(integerKey, 80);
+
+        assert recorder.finish() == 3;
+        assert recorder.first() == 60;
+        assert recorder.last() == 80;
+
+        observable.emit(integerKey, 90);
+        assert recorder.count() == 3;
+    }
+
+    @Test
+    public void RecorderWindowTest() throws Exception {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        CompletableFuture<EmissionRecorder<Integer>> future = new CompletableFuture<>();
+        AtomicReference<String> thread = new AtomicReference<>();
+        EmissionRecorder<Integer> recorder = EmissionRecorder.startWindow(observable, integerKey, _i -> true,
+            Duration.ofMillis(50), r -> {
+                thread.set(Thread.currentThread().getName());
+                future.complete(r);
+            });
+
+        observable.emit(integerKey, 1);
+        observable.emit(integerKey, 2);
+
+        assert future.get(5, TimeUnit.SECONDS) == recorder;
+        assert recorder.isFinished();
+        assert recorder.count() == 2;
+        assert !thread.get().equals("JObserve Timing Wheel");
+    }
+
+    @Test
+    public void AfterCountTest() {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        EmissionTrigger<Integer> trigger = EmissionTrigger.afterCount(observable, integerKey, i -> i > 50, 2, fired::add);
+
+        observable.emit(integerKey, 60);
+        observable.emit(integerKey, 20);
+        assert fired.isEmpty();
+
+        observable.emit(integerKey, 70);
+        observable.emit(integerKey, 80);
+
+        assert fired.equals(List.of(70));
+        assert trigger.isCancelled();
+    }
+
+    @Test
+    public void TriggerDuringSubscribeTest() {
+        ObserverEmitter emitter = ObserverEmitter.create();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+        Observable observable = new Observable() {
+
+            @Override
+            public @NotNull ObserverEmitter getEmitter() {
+                return emitter;
+            }
+
+            @Override
+            public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull Consumer<T> consumer) {
+                ObserverSub subscription = Observable.super.observe(key, consumer);
+                emitter.emit(integerKey, 1);
+                return subscription;
+            }
+
+        };
+
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        EmissionTrigger<Integer> trigger = EmissionTrigger.afterCount(observable, integerKey, _i -> true, 1, fired::add);
+
+        assert fired.equals(List.of(1));
+        assert trigger.isCancelled();
+        assert !emitter.isObserved(integerKey);
+    }
+
+    @Test
+    public void DebounceTest() throws Exception {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        EmissionTrigger<Integer> trigger = EmissionTrigger.debounce(observable, integerKey, _i -> true, Duration.ofMillis(100), i -> {
+            fired.add(i);
+            thread.set(Thread.currentThread().getName());
+            latch.countDown();
+        });
+
+        for (int i = 0; i < 5; i++) {
+            observable.emit(integerKey, i);
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS);
+        assert fired.equals(List.of(4));
+        assert !thread.get().equals("JObserve Timing Wheel");
+
+        trigger.cancel();
+        observable.emit(integerKey, 10);
+        Thread.sleep(250);
+
+        assert fired.equals(List.of(4));
+    }
+
+    @Test
+    public void TimingWheelTest() throws Exception {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), "Test Timing Wheel");
+        int count = 200;
+
+        AtomicInteger early = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        for (int i = 0; i < count; i++) {
+            long delay = i * 3L;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            TimingWheel.Timeout timeout = wheel.schedule(() -> {
+                if (System.nanoTime() < deadline) early.incrementAndGet();
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+
+            if (i % 2 == 1) {
+                assert timeout.cancel();
+            }
+        }
+
+        assert latch.await(10, TimeUnit.SECONDS);
+        assert early.get() == 0;
+
+        Thread.sleep(50);
+        assert latch.getCount() == 0;
+    }
+
 }
@@ -1,8 +1,21 @@
 package dev.tommyjs.jobserve;
 
+import dev.tommyjs.jobserve.dummy.DummyEmitter;
 import dev.tommyjs.jobserve.dummy.DummyObservable;
 import dev.tommyjs.jobserve.dummy.DummyPropertyHolder;
+import dev.tommyjs.jobserve.observer.CascadeException;
+import dev.tommyjs.jobserve.observer.ConfinedObserverEmitter;
+import dev.tommyjs.jobserve.observer.EmissionException;
+import dev.tommyjs.jobserve.observer.EmissionPipeline;
+import dev.tommyjs.jobserve.observer.EmissionProbe;
+import dev.tommyjs.jobserve.observer.EmitterOptions;
+import dev.tommyjs.jobserve.observer.FailurePolicy;
 import dev.tommyjs.jobserve.observer.Observable;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.ObserverPriority;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.SubscriberStats;
+import dev.tommyjs.jobserve.observer.impl.ObserverSet;
 import dev.tommyjs.jobserve.observer.key.ObserverKey;
 import dev.tommyjs.jobserve.property.PropertyHolder;
 import dev.tommyjs.jobserve.property.PropertyKey;
@@ -10,9 +23,25 @@ import dev.tommyjs.jobserve.property.PropertyMap;
 import dev.tommyjs.jobserve.util.EmissionWatcher;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public class ObserverTest {
 
     @Test
@@ -59,4 +88,528 @@ public class ObserverTest {
         assert watcher.finish();
     }
 
+    @Test
+    public void PriorityOrderTest() {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        List<ObserverPriority> order = new ArrayList<>();
+        observable.observe(integerKey, ObserverPriority.MONITOR, i -> order.add(ObserverPriority.MONITOR));
+        observable.observe(integerKey, ObserverPriority.POST, i -> order.add(ObserverPriority.POST));
+        observable.observe(integerKey, i -> order.add(ObserverPriority.NORMAL));
+        observable.observe(integerKey, ObserverPriority.PRE, i -> order.add(ObserverPriority.PRE));
+        observable.emit(integerKey, 50);
+
+        assert order.equals(List.of(ObserverPriority.values()));
+    }
+
+    @Test
+    public void CancellationTest() {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        List<ObserverPriority> order = new ArrayList<>();
+        observable.observe(integerKey, ObserverPriority.PRE, (i, context) -> {
+            if (i < 0) context.cancel();
+        });
+        observable.observe(integerKey, i -> order.add(ObserverPriority.NORMAL));
+        observable.observe(integerKey, ObserverPriority.MONITOR, (i, context) -> {
+            assert context.isCancelled() == (i < 0);
+            order.add(ObserverPriority.MONITOR);
+        });
+
+        assert observable.emitCancellable(integerKey, -1);
+        assert order.equals(List.of(ObserverPriority.MONITOR));
+
+        order.clear();
+        assert !observable.emitCancellable(integerKey, 1);
+        assert order.equals(List.of(ObserverPriority.NORMAL, ObserverPriority.MONITOR));
+    }
+
+    @Test
+    public void CompiledDispatchTest() {
+        ObserverEmitter emitter = ObserverEmitter.create(EmitterOptions.defaults().compileDispatch(4));
+        ObserverKey<Integer> integerKey = ObserverKey.register(Integer.class);
+
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        emitter.observe(integerKey, first::addAndGet);
+        ObserverSub sub = emitter.observe(integerKey, second::addAndGet);
+
+        for (int i = 0; i < 10; i++) {
+            emitter.emit(integerKey, 1);
+        }
+
+        sub.cancel();
+        emitter.emit(integerKey, 1);
+
+        assert first.get() == 11;
+        assert second.get() == 10;
+
+        ObserverSet set = new ObserverSet(EmitterOptions.defaults().compileDispatch(4));
+        AtomicInteger calls = new AtomicInteger();
+        ObserverSub compiled = set.subscribe(v -> calls.incrementAndGet());
+        for (int i = 0; i < 3; i++) {
+            set.call(i);
+        }
+
+        assert !set.isCompiled();
+        set.call(3);
+        assert set.isCompiled();
+        set.call(4);
+        assert calls.get() == 5;
+
+        compiled.cancel();
+        set.subscribe(v -> calls.incrementAndGet());
+        assert !set.isCompiled();
+
+        ObserverSet disabled = new ObserverSet();
+        disabled.subscribe(v -> {});
+        for (int i = 0; i < 1000; i++) {
+            disabled.call(i);
+        }
+
+        assert !disabled.isCompiled();
+    }
+
+    @Test
+    public void ConfinedTest() {
+        ConfinedObserverEmitter emitter = ObserverEmitter.createConfined();
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+
+        List<String> calls = new ArrayList<>();
+        emitter.observe(key, ObserverPriority.MONITOR, _i -> calls.add("monitor"));
+        emitter.observe(key, _i -> calls.add("normal"));
+        emitter.observe(key, ObserverPriority.PRE, (i, context) -> {
+            calls.add("pre");
+            if (i < 0) context.cancel();
+        });
+
+        ObserverSub sub = emitter.observe(key, ObserverPriority.POST, _i -> calls.add("post"));
+        AtomicReference<ObserverSub> once = new AtomicReference<>();
+        once.set(emitter.observe(key, ObserverPriority.POST, _i -> {
+            calls.add("once");
+            once.get().cancel();
+        }));
+
+        assert !emitter.emitCancellable(key, 1);
+        assert calls.equals(List.of("pre", "normal", "post", "once", "monitor"));
+
+        calls.clear();
+        sub.cancel();
+        assert emitter.emitCancellable(key, -1);
+        assert calls.equals(List.of("pre", "monitor"));
+    }
+
+    @Test
+    public void AwaitTest() throws Exception {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                result.complete(observable.await(key, i -> i > 50, Duration.ofSeconds(10)));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        for (int i = 0; !result.isDone(); i++) {
+            observable.emit(key, i % 100);
+            Thread.sleep(1);
+        }
+
+        thread.join();
+        assert result.get() > 50;
+        assertThrows(TimeoutException.class, () -> observable.await(key, _i -> true, Duration.ofMillis(20)));
+    }
+
+    @Test
+    public void WaiterQueueTest() throws Exception {
+        ObserverEmitter emitter = ObserverEmitter.create();
+        Observable observable = () -> emitter;
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int expected = i;
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    result.complete(observable.await(key, v -> v == expected, Duration.ofSeconds(10)));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            results.add(result);
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (emitter.footprint().probes() < 16 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assert emitter.footprint().probes() == 16;
+        assertThrows(TimeoutException.class, () -> observable.await(key, _i -> false, Duration.ofMillis(10)));
+        assert emitter.footprint().probes() == 16;
+
+        for (int i = 15; i >= 0; i--) {
+            emitter.emit(key, i);
+            assert results.get(i).get(5, TimeUnit.SECONDS) == i;
+        }
+
+        deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (emitter.isObserved(key) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assert !emitter.isObserved(key);
+        assert emitter.footprint().probes() == 0;
+        assert emitter.footprint().subscribers().keySet().equals(Set.of(key));
+
+        emitter.observe(key, v -> {}).cancel();
+        assert emitter.footprint().subscribers().isEmpty();
+    }
+
+    @Test
+    public void AsyncEmitTest() throws Exception {
+        ObserverEmitter emitter = ObserverEmitter.create();
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        emitter.observe(key, ObserverPriority.MONITOR, _i -> calls.add("monitor"));
+        emitter.observe(key, ObserverPriority.POST, _i -> calls.add("post"));
+        for (int i = 0; i < 8; i++) {
+            emitter.observe(key, _i -> calls.add("normal"));
+        }
+
+        emitter.observe(key, ObserverPriority.PRE, (i, context) -> {
+            calls.add("pre");
+            if (i < 0) context.cancel();
+        });
+
+        emitter.emitAsync(key, 1, executor, FailurePolicy.FAIL_FAST).get(5, TimeUnit.SECONDS);
+        assert calls.size() == 11;
+        assert calls.get(0).equals("pre");
+        assert calls.subList(1, 9).stream().allMatch("normal"::equals);
+        assert calls.subList(9, 11).equals(List.of("post", "monitor"));
+
+        calls.clear();
+        emitter.emitAsync(key, -1, executor, FailurePolicy.FAIL_FAST).get(5, TimeUnit.SECONDS);
+        assert calls.equals(List.of("pre", "monitor"));
+
+        emitter.observe(key, _i -> { throw new IllegalStateException("first"); });
+        emitter.observe(key, _i -> { throw new IllegalStateException("second"); });
+
+        ExecutionException collected = assertThrows(ExecutionException.class,
+            () -> emitter.emitAsync(key, 1, executor, FailurePolicy.COLLECT).get(5, TimeUnit.SECONDS));
+        assert ((EmissionException) collected.getCause()).getFailures().size() == 2;
+
+        ExecutionException failed = assertThrows(ExecutionException.class,
+            () -> emitter.emitAsync(key, 1, executor, FailurePolicy.FAIL_FAST).get(5, TimeUnit.SECONDS));
+        assert ((EmissionException) failed.getCause()).getFailures().size() == 1;
+
+        calls.clear();
+        emitter.emitAsync(key, 1, executor, FailurePolicy.IGNORE).get(5, TimeUnit.SECONDS);
+        assert calls.contains("monitor");
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void ErrorIsolationTest() throws Exception {
+        List<Throwable> errors = new ArrayList<>();
+        ObserverEmitter emitter = ObserverEmitter.create(EmitterOptions.defaults()
+            .compileDispatch(1)
+            .errorHandler((_sub, error) -> errors.add(error))
+            .circuitBreaker(3, Duration.ofMillis(50)));
+
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+        AtomicInteger healthy = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<Boolean> failing = new AtomicReference<>(true);
+
+        emitter.observe(key, _i -> healthy.incrementAndGet());
+        ObserverSub faulty = emitter.observe(key, _i -> {
+            attempts.incrementAndGet();
+            if (failing.get()) throw new IllegalStateException();
+        });
+        emitter.observe(key, _i -> healthy.incrementAndGet());
+
+        for (int i = 0; i < 10; i++) {
+            emitter.emit(key, i);
+        }
+
+        SubscriberStats stats = Objects.requireNonNull(faulty.getStats());
+        assert healthy.get() == 20;
+        assert attempts.get() == 3;
+        assert errors.size() == 3;
+        assert stats.isSuspended();
+        assert stats.getTrips() == 1;
+
+        Thread.sleep(60);
+        emitter.emit(key, 0);
+        assert attempts.get() == 4;
+        assert stats.isSuspended();
+        assert stats.getTrips() == 2;
+
+        Thread.sleep(60);
+        failing.set(false);
+        emitter.emit(key, 0);
+        emitter.emit(key, 0);
+        assert attempts.get() == 6;
+        assert !stats.isSuspended();
+        assert stats.getFailures() == 4;
+        assert stats.getConsecutiveFailures() == 0;
+    }
+
+    @Test
+    public void ParallelFanOutTest() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ObserverEmitter emitter = ObserverEmitter.create(EmitterOptions.defaults().parallelFanOut(64, pool));
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+
+        AtomicInteger pre = new AtomicInteger();
+        AtomicInteger normal = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        emitter.observe(key, ObserverPriority.PRE, (i, context) -> {
+            pre.incrementAndGet();
+            if (i < 0) context.cancel();
+        });
+
+        for (int i = 0; i < 1000; i++) {
+            emitter.observe(key, _i -> {
+                threads.add(Thread.currentThread());
+                normal.incrementAndGet();
+            });
+        }
+
+        emitter.observe(key, ObserverPriority.POST, _i -> {
+            if (normal.get() % 1000 != 0) outOfOrder.incrementAndGet();
+        });
+
+        for (int i = 0; i < 20; i++) {
+            emitter.emit(key, i);
+        }
+
+        assert pre.get() == 20;
+        assert normal.get() == 20_000;
+        assert outOfOrder.get() == 0;
+        assert threads.stream().anyMatch(t -> t != Thread.currentThread());
+
+        assert emitter.emitCancellable(key, -1);
+        assert normal.get() == 20_000;
+        pool.shutdown();
+    }
+
+    @Test
+    public void PipelineTest() throws InterruptedException {
+        Observable observable = new DummyObservable();
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+
+        AtomicInteger evaluations = new AtomicInteger();
+        EmissionPipeline<Integer> even = observable.on(key).filter(i -> {
+            evaluations.incrementAndGet();
+            return i % 2 == 0;
+        });
+
+        List<String> mapped = new ArrayList<>();
+        List<Integer> distinct = new ArrayList<>();
+        ObserverSub first = even.map(i -> "#" + i).subscribe(mapped::add);
+        ObserverSub second = even.distinctUntilChanged().subscribe(distinct::add);
+
+        for (int i : new int[]{1, 2, 2, 3, 4, 4, 6}) {
+            observable.emit(key, i);
+        }
+
+        assert evaluations.get() == 7;
+        assert mapped.equals(List.of("#2", "#2", "#4", "#4", "#6"));
+        assert distinct.equals(List.of(2, 4, 6));
+
+        first.cancel();
+        observable.emit(key, 8);
+        assert mapped.size() == 5;
+        assert distinct.equals(List.of(2, 4, 6, 8));
+
+        second.cancel();
+        observable.emit(key, 10);
+        assert evaluations.get() == 8;
+
+        AtomicInteger throttled = new AtomicInteger();
+        observable.on(key).throttle(Duration.ofMillis(200)).subscribe(i -> throttled.incrementAndGet());
+        observable.emit(key, 1);
+        observable.emit(key, 2);
+        assert throttled.get() == 1;
+        Thread.sleep(250);
+        observable.emit(key, 3);
+        assert throttled.get() == 2;
+
+        assertThrows(IllegalArgumentException.class, () -> observable.on(key).throttle(Duration.ZERO));
+    }
+
+    @Test
+    public void CascadeTest() {
+        EmitterOptions options = EmitterOptions.defaults().cascade(1_000_000, 1_000_000);
+        ObserverEmitter emitter = ObserverEmitter.create(options);
+        ObserverKey<Integer> countdown = ObserverKey.register(Integer.class);
+        AtomicInteger calls = new AtomicInteger();
+        emitter.observe(countdown, i -> {
+            calls.incrementAndGet();
+            if (i > 0) emitter.emit(countdown, i - 1);
+        });
+
+        emitter.emit(countdown, 200_000);
+        assert calls.get() == 200_001;
+
+        ObserverKey<String> tree = ObserverKey.register(String.class);
+        List<String> order = new ArrayList<>();
+        emitter.observe(tree, s -> {
+            order.add(s);
+            if (s.length() < 3) {
+                emitter.emit(tree, s + "a");
+                emitter.emit(tree, s + "b");
+            }
+        });
+
+        emitter.emit(tree, "r");
+        assert order.equals(List.of("r", "ra", "rb", "raa", "rab", "rba", "rbb"));
+
+        PropertyMap first = PropertyMap.create(ObserverEmitter.create(EmitterOptions.defaults().cascade(16, 1_000)));
+        PropertyMap second = PropertyMap.create(ObserverEmitter.create(EmitterOptions.defaults().cascade(16, 1_000)));
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        first.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> second.setProperty(key, (Integer) update.curr() + 1));
+        second.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> first.setProperty(key, (Integer) update.curr() + 1));
+
+        CascadeException e = assertThrows(CascadeException.class, () -> first.setProperty(key, 0));
+        assert e.isCycle();
+        assert e.getPath().size() == 18;
+        assert first.getProperty(key) == 16;
+
+        ObserverEmitter budgeted = ObserverEmitter.create(EmitterOptions.defaults().cascade(100, 10));
+        AtomicInteger fanned = new AtomicInteger();
+        budgeted.observe(tree, s -> {
+            fanned.incrementAndGet();
+            budgeted.emit(tree, s);
+            budgeted.emit(tree, s);
+        });
+
+        assert !assertThrows(CascadeException.class, () -> budgeted.emit(tree, "x")).getMessage().isEmpty();
+        assert fanned.get() <= 10;
+
+        budgeted.observe(countdown, i -> {});
+        budgeted.emit(countdown, 0);
+    }
+
+    @Test
+    public void ReclaimTest() throws InterruptedException {
+        ObserverEmitter emitter = ObserverEmitter.create();
+        long emptyBytes = emitter.footprint().estimatedBytes();
+
+        for (int i = 0; i < 1000; i++) {
+            ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+            ObserverSub first = emitter.observe(key, v -> {});
+            ObserverSub second = emitter.observe(key, ObserverPriority.MONITOR, (v, context) -> {});
+            EmissionProbe probe = v -> {};
+            emitter.attach(key, probe);
+            first.cancel();
+            second.cancel();
+            assert emitter.isObserved(key);
+            emitter.detach(key, probe);
+            assert !emitter.isObserved(key);
+            emitter.observe(key, v -> {}).cancel();
+            emitter.observe(key, v -> {}).cancel();
+            assert !emitter.isObserved(key);
+        }
+
+        assert emitter.footprint().subscribers().isEmpty();
+        assert emitter.footprint().estimatedBytes() == emptyBytes;
+
+        ObserverKey<Integer> watched = ObserverKey.register(Integer.class);
+        EmissionProbe probe = v -> {};
+        emitter.attach(watched, probe);
+        emitter.detach(watched, probe);
+        assert !emitter.isObserved(watched);
+        assert emitter.footprint().subscribers().keySet().equals(Set.of(watched));
+        emitter.observe(watched, v -> {}).cancel();
+        assert emitter.footprint().subscribers().isEmpty();
+
+        ObserverKey<Integer> shared = ObserverKey.register(Integer.class);
+        AtomicInteger missed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    AtomicInteger received = new AtomicInteger();
+                    ObserverSub subscription = emitter.observe(shared, v -> received.incrementAndGet());
+                    emitter.emit(shared, i);
+                    subscription.cancel();
+                    if (received.get() == 0) {
+                        missed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assert missed.get() == 0;
+        assert emitter.footprint().subscribers().isEmpty();
+
+        ConfinedObserverEmitter confined = ObserverEmitter.createConfined();
+        long confinedBytes = confined.footprint().estimatedBytes();
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+        confined.observe(key, v -> {}).cancel();
+        assert confined.footprint().subscribers().isEmpty();
+        assert confined.footprint().estimatedBytes() == confinedBytes;
+    }
+
+    @Test
+    public void DefaultEmitterTest() throws InterruptedException {
+        ObserverEmitter emitter = new DummyEmitter();
+        ObserverKey<Integer> key = ObserverKey.register(Integer.class);
+        List<String> calls = new ArrayList<>();
+
+        emitter.observe(key, ObserverPriority.POST, v -> calls.add("post " + v));
+        ObserverSub cancelling = emitter.observe(key, ObserverPriority.PRE, (v, context) -> {
+            context.cancel();
+            assert context.isCancelled();
+            calls.add("pre " + v);
+        });
+
+        assert !emitter.emitCancellable(key, 1);
+        assert calls.equals(List.of("post 1", "pre 1"));
+
+        cancelling.cancel();
+        emitter.emit(key, 2);
+        assert calls.getLast().equals("post 2");
+
+        List<Object> probed = new ArrayList<>();
+        EmissionProbe probe = probed::add;
+        emitter.attach(key, probe);
+        emitter.emit(key, 3);
+        emitter.detach(key, probe);
+        emitter.emit(key, 4);
+        assert probed.equals(List.of(3));
+
+        emitter.emitAsync(key, 5).join();
+        assert calls.getLast().equals("post 5");
+
+        emitter.observe(key, v -> {
+            throw new IllegalStateException("failed " + v);
+        });
+        CompletableFuture<Void> failed = emitter.emitAsync(key, 6);
+        ExecutionException error = assertThrows(ExecutionException.class, failed::get);
+        assert error.getCause() instanceof EmissionException emission && emission.getFailures().size() == 1;
+        emitter.emitAsync(key, 7, ForkJoinPool.commonPool(), FailurePolicy.IGNORE).join();
+
+        assert emitter.footprint().subscriberCount() == 0;
+        assert emitter.isObserved(ObserverKey.register(Integer.class));
+    }
+
 }
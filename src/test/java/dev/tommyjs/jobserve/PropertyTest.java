@@ -1,14 +1,62 @@
 package dev.tommyjs.jobserve;
 
 import com.google.common.reflect.TypeToken;
+import com.sun.management.ThreadMXBean;
 import dev.tommyjs.jobserve.dummy.DummyPropertyHolder;
+import dev.tommyjs.jobserve.observer.EmitterOptions;
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.SubscriberStats;
+import dev.tommyjs.jobserve.property.BulkStats;
+import dev.tommyjs.jobserve.property.ConfinedPropertyMap;
+import dev.tommyjs.jobserve.property.CounterProperty;
+import dev.tommyjs.jobserve.property.DeltaType;
+import dev.tommyjs.jobserve.property.LoadingPropertyKey;
+import dev.tommyjs.jobserve.property.ObservableList;
+import dev.tommyjs.jobserve.property.ObservableListProperty;
+import dev.tommyjs.jobserve.property.ObservableMap;
+import dev.tommyjs.jobserve.property.ObservableMapProperty;
+import dev.tommyjs.jobserve.property.PropertyBatchUpdate;
+import dev.tommyjs.jobserve.property.PropertyCache;
+import dev.tommyjs.jobserve.property.PropertyChanges;
+import dev.tommyjs.jobserve.property.PropertyCounter;
+import dev.tommyjs.jobserve.property.PropertyCounterUpdate;
+import dev.tommyjs.jobserve.property.PropertyEquality;
 import dev.tommyjs.jobserve.property.PropertyHolder;
+import dev.tommyjs.jobserve.property.PropertyHolders;
 import dev.tommyjs.jobserve.property.PropertyKey;
+import dev.tommyjs.jobserve.property.PropertyKeySet;
+import dev.tommyjs.jobserve.property.PropertyListDelta;
+import dev.tommyjs.jobserve.property.PropertyMap;
+import dev.tommyjs.jobserve.property.PropertyMapDelta;
+import dev.tommyjs.jobserve.property.PropertyMapFootprint;
+import dev.tommyjs.jobserve.property.PropertyMapOptions;
+import dev.tommyjs.jobserve.property.PropertyUpdate;
+import dev.tommyjs.jobserve.property.PropertyUpdateView;
+import dev.tommyjs.jobserve.property.UpdateScheduler;
+import dev.tommyjs.jobserve.util.FootprintCensus;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -225,4 +273,904 @@ public class PropertyTest {
         assert Objects.equals(holder2.getProperty(integerProperty), 100);
     }
 
+    @Test
+    public void UpdateAllTest() {
+        PropertyKey<Integer> balanceProperty = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> countProperty = PropertyKey.register(Integer.class);
+        PropertyHolder holder = new DummyPropertyHolder();
+        holder.setProperty(balanceProperty, 100);
+
+        AtomicInteger emissions = new AtomicInteger();
+        holder.observe(PropertyMap.UPDATE_PROPERTIES_KEY, batch -> emissions.addAndGet(batch.updates().size()));
+
+        holder.updateProperties(Set.of(balanceProperty, countProperty), view -> PropertyChanges.create()
+            .set(balanceProperty, view.getPropertyOrDefault(balanceProperty, 0) - 30)
+            .set(countProperty, view.getPropertyOrDefault(countProperty, 0) + 1));
+
+        assert Objects.equals(holder.getProperty(balanceProperty), 70);
+        assert Objects.equals(holder.getProperty(countProperty), 1);
+        assert emissions.get() == 2;
+    }
+
+    @Test
+    public void UpdateAllConcurrentTest() throws InterruptedException {
+        PropertyKey<Integer> fromProperty = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> toProperty = PropertyKey.register(Integer.class);
+        PropertyHolder holder = new DummyPropertyHolder();
+        holder.setProperty(fromProperty, 10000);
+        holder.setProperty(toProperty, 0);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    holder.updateProperties(Set.of(fromProperty, toProperty), view -> PropertyChanges.create()
+                        .set(fromProperty, view.getProperty(fromProperty) - 1)
+                        .set(toProperty, view.getProperty(toProperty) + 1));
+                    holder.updatePropertyAndGet(toProperty, v -> v + 1);
+                    holder.updatePropertyAndGet(toProperty, v -> v - 1);
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assert Objects.equals(holder.getProperty(fromProperty), 6000);
+        assert Objects.equals(holder.getProperty(toProperty), 4000);
+    }
+
+    @Test
+    public void UpdateAllForeignKeyTest() {
+        PropertyKey<Integer> integerProperty = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> otherProperty = PropertyKey.register(Integer.class);
+        PropertyHolder holder = new DummyPropertyHolder();
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            holder.updateProperties(Set.of(integerProperty), view -> PropertyChanges.create().set(otherProperty, 1));
+        });
+        assert !holder.hasProperty(otherProperty);
+    }
+
+    @Test
+    public void ReadOptimizedTest() {
+        PropertyMap map = PropertyMap.create(PropertyMapOptions.defaults().readOptimized(true));
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(0);
+
+        for (int i = 0; i < 10000; i++) {
+            String key = String.valueOf(random.nextInt(64));
+            Integer value = random.nextInt(4) == 0 ? null : random.nextInt();
+            map.setProperty(key, value);
+            if (value == null) {
+                expected.remove(key);
+            } else {
+                expected.put(key, value);
+            }
+        }
+
+        for (int i = 0; i < 64; i++) {
+            assert Objects.equals(map.getProperty(String.valueOf(i)), expected.get(String.valueOf(i)));
+        }
+        assert map.getProperties().size() == expected.size();
+    }
+
+    @Test
+    public void PromotionConcurrentTest() throws InterruptedException {
+        PropertyMap map = PropertyMap.create();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int offset = i * 8;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 8; j++) {
+                    map.setProperty(String.valueOf(offset + j), offset + j);
+                }
+
+                for (int j = 0; j < 8; j += 2) {
+                    map.clearProperty(String.valueOf(offset + j));
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < 32; i++) {
+            assert Objects.equals(map.getProperty(String.valueOf(i)), i % 2 == 0 ? null : i);
+        }
+        assert map.getProperties().size() == 16;
+    }
+
+    @Test
+    public void ConfinedTest() throws Exception {
+        ConfinedPropertyMap map = PropertyMap.createConfined();
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+
+        AtomicInteger updates = new AtomicInteger();
+        map.observe(PropertyMap.UPDATE_PROPERTY_KEY, _u -> updates.incrementAndGet());
+        map.setProperty(key, 1);
+        assert map.getOwner() == Thread.currentThread();
+
+        AtomicInteger violations = new AtomicInteger();
+        Thread thread = new Thread(() -> {
+            try {
+                map.getProperty(key);
+            } catch (AssertionError e) {
+                violations.incrementAndGet();
+            }
+        });
+
+        thread.start();
+        thread.join();
+        assert violations.get() == 1;
+
+        map.release();
+        assertThrows(IllegalStateException.class, map::release);
+
+        thread = new Thread(() -> {
+            map.acquire();
+            map.updatePropertyAndGet(key, i -> i + 1);
+            map.release();
+        });
+
+        thread.start();
+        thread.join();
+
+        map.acquire();
+        assert map.getProperty(key) == 2;
+        assert updates.get() == 2;
+        assert map.getProperties().size() == 1;
+    }
+
+    @Test
+    public void AwaitPropertyTest() throws Exception {
+        PropertyHolder holder = new DummyPropertyHolder();
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> other = PropertyKey.register(Integer.class);
+
+        holder.setProperty(key, 5);
+        assert holder.awaitProperty(key, i -> i == 5, Duration.ZERO) == 5;
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                result.complete(holder.awaitProperty(key, i -> i != null && i >= 10, Duration.ofSeconds(10)));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        while (!result.isDone()) {
+            holder.setProperty(other, 100);
+            holder.updateProperties(Set.of(key), view -> PropertyChanges.create().set(key, 10));
+            Thread.sleep(1);
+        }
+
+        thread.join();
+        assert result.get() == 10;
+        assertThrows(TimeoutException.class, () -> holder.awaitProperty(key, i -> i == null, Duration.ofMillis(20)));
+    }
+
+    @Test
+    public void NoOpWriteTest() {
+        PropertyMap map = PropertyMap.create(PropertyMapOptions.defaults().equality(PropertyEquality.EQUALS));
+        PropertyKey<String> key = PropertyKey.register(String.class);
+        PropertyKey<String> caseless = key.withEquality(PropertyEquality.comparing(String.CASE_INSENSITIVE_ORDER));
+
+        AtomicInteger updates = new AtomicInteger();
+        map.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> updates.incrementAndGet());
+
+        map.setProperty(key, "value");
+        map.setProperty(key, new String("value"));
+        assert updates.get() == 1;
+
+        assert map.updatePropertyAndGet(key, v -> v).equals("value");
+        assert map.getPropertyAndUpdate(key, v -> "value").equals("value");
+        assert updates.get() == 1;
+
+        map.setProperty(caseless, "VALUE");
+        assert updates.get() == 1;
+        assert map.getProperty(key).equals("value");
+
+        map.setProperty(key, "VALUE");
+        assert updates.get() == 2;
+
+        map.updateAll(Set.of(key), view -> PropertyChanges.create().set(key, "VALUE"));
+        assert updates.get() == 2;
+
+        PropertyMap copy = PropertyMap.create(PropertyMapOptions.defaults().equality(PropertyEquality.EQUALS));
+        map.copyInto(copy);
+        AtomicInteger copyUpdates = new AtomicInteger();
+        copy.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> copyUpdates.incrementAndGet());
+        map.copyInto(copy);
+        assert copyUpdates.get() == 0;
+
+        PropertyMap plain = PropertyMap.create();
+        plain.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> updates.incrementAndGet());
+        plain.setProperty(key, "value");
+        plain.setProperty(key, "value");
+        assert updates.get() == 4;
+
+        PropertyKey<Integer> number = PropertyKey.<Integer>register(Integer.class).withEquality(PropertyEquality.comparing(Comparator.naturalOrder()));
+        plain.setProperty(number, 1);
+        plain.setProperty(number, 1);
+        plain.setProperty(number, null);
+        plain.setProperty(number, null);
+        assert updates.get() == 6;
+    }
+
+    @Test
+    public void ObserveAnyTest() {
+        PropertyHolder holder = new DummyPropertyHolder();
+        PropertyKey<Integer> hp = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> armor = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> shield = PropertyKey.register(Integer.class);
+        PropertyKey<String> name = PropertyKey.register(String.class);
+
+        List<PropertyKeySet> changes = new ArrayList<>();
+        holder.observeAny(Set.of(hp, armor, shield), changes::add);
+
+        holder.setProperty(name, "name");
+        assert changes.isEmpty();
+
+        holder.setProperty(hp, 10);
+        assert changes.size() == 1;
+        assert changes.getFirst().equals(PropertyKeySet.of(hp));
+
+        holder.updateProperties(Set.of(armor, shield, name), view -> PropertyChanges.create().set(armor, 1).set(shield, 2).set(name, "other"));
+        assert changes.size() == 2;
+        assert changes.get(1).equals(PropertyKeySet.of(armor, shield));
+        assert changes.get(1).contains(armor.getIdentifier());
+        assert !changes.get(1).contains(hp);
+        assert changes.get(1).size() == 2;
+
+        holder.updateProperties(Set.of(name), view -> PropertyChanges.create().set(name, "last"));
+        assert changes.size() == 2;
+
+        assert hp.withEquality(PropertyEquality.EQUALS).getOrdinal() == hp.getOrdinal();
+        assert PropertyKeySet.of(hp, armor).intersects(PropertyKeySet.of(armor));
+        assert !PropertyKeySet.of(hp).intersects(PropertyKeySet.of(name));
+    }
+
+    @Test
+    public void ExpiringPropertyTest() throws InterruptedException {
+        PropertyMap map = PropertyMap.create();
+        PropertyKey<String> token = PropertyKey.register(String.class);
+        PropertyKey<String> renewed = PropertyKey.register(String.class);
+
+        List<PropertyUpdate> expirations = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        map.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> {
+            if (update.curr() == null) {
+                threads.add(Thread.currentThread().getName());
+                expirations.add(update);
+            }
+        });
+
+        map.setProperty(token, "token", Duration.ofMillis(50));
+        map.setProperty(renewed, "first", Duration.ofMillis(50));
+        map.setProperty(renewed, "second");
+        assert map.getProperty(token).equals("token");
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (expirations.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assert map.getProperty(token) == null;
+        assert map.getProperty(renewed).equals("second");
+        assert expirations.size() == 1;
+        assert expirations.getFirst().equals(new PropertyUpdate(token.getIdentifier(), "token", null));
+        assert !threads.getFirst().equals("JObserve Timing Wheel");
+
+        assertThrows(IllegalArgumentException.class, () -> map.setProperty(token, "token", Duration.ZERO));
+
+        ConfinedPropertyMap confined = PropertyMap.createConfined();
+        List<PropertyUpdate> confinedUpdates = new ArrayList<>();
+        confined.observe(PropertyMap.UPDATE_PROPERTY_KEY, confinedUpdates::add);
+        confined.setProperty(token, "token", Duration.ofMillis(20));
+        confined.setProperty(renewed, "first", Duration.ofMillis(20));
+        confined.setProperty(renewed, "second");
+        assert confined.getProperty(token).equals("token");
+
+        Thread.sleep(40);
+        assert confined.getProperty(token) == null;
+        assert confined.getProperty(renewed).equals("second");
+        assert confined.getProperties().size() == 1;
+        assert confined.getProperties().iterator().next().key().equals(renewed.getIdentifier());
+        assert confined.footprint().keys().equals(List.of(renewed.getIdentifier()));
+
+        ConfinedPropertyMap copy = PropertyMap.createConfined();
+        confined.copyInto(copy);
+        assert copy.getProperties().size() == 1 && copy.getProperty(token) == null;
+
+        confined.setProperty(token, "again");
+        assert confinedUpdates.getLast().equals(new PropertyUpdate(token.getIdentifier(), null, "again"));
+        assertThrows(IllegalArgumentException.class, () -> confined.setProperty(token, "token", Duration.ZERO));
+    }
+
+    @Test
+    public void LoadingPropertyTest() throws Exception {
+        PropertyCache cache = PropertyCache.create(2);
+        AtomicInteger loads = new AtomicInteger();
+        List<CompletableFuture<String>> pending = new CopyOnWriteArrayList<>();
+        PropertyKey<String> base = PropertyKey.register(String.class);
+        LoadingPropertyKey<String> key = LoadingPropertyKey.create(base, map -> {
+            loads.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }).cache(cache);
+
+        PropertyMap first = PropertyMap.create();
+        CompletableFuture<String> a = first.getPropertyAsync(key);
+        CompletableFuture<String> b = first.getPropertyAsync(key);
+        assert a == b;
+        assert loads.get() == 1;
+
+        pending.getFirst().complete("loaded");
+        assert a.get().equals("loaded");
+        assert first.getProperty(base).equals("loaded");
+        assert first.getPropertyAsync(key).get().equals("loaded");
+        assert loads.get() == 1;
+        assert cache.getSize() == 1;
+
+        PropertyMap second = PropertyMap.create();
+        PropertyMap third = PropertyMap.create();
+        second.getPropertyAsync(key);
+        pending.get(1).complete("second");
+        third.getPropertyAsync(key);
+        pending.get(2).complete("third");
+
+        assert cache.getSize() == 2;
+        assert first.getProperty(base).equals("loaded");
+        assert second.getProperty(base) == null;
+        assert third.getProperty(base).equals("third");
+
+        LoadingPropertyKey<String> refreshing = LoadingPropertyKey.create(base, map -> CompletableFuture.completedFuture("v" + loads.incrementAndGet()))
+            .refreshAfter(Duration.ofMillis(10))
+            .cache(cache);
+        PropertyMap fourth = PropertyMap.create();
+        String initial = fourth.getPropertyAsync(refreshing).get();
+        Thread.sleep(20);
+        assert fourth.getPropertyAsync(refreshing).get().equals(initial);
+        assert !fourth.getProperty(base).equals(initial);
+
+        CompletableFuture<String> failed = PropertyMap.create().getPropertyAsync(LoadingPropertyKey.create(base, map -> CompletableFuture.failedFuture(new IllegalStateException())));
+        assert failed.isCompletedExceptionally();
+        assertThrows(UnsupportedOperationException.class, () -> PropertyMap.createConfined().getPropertyAsync(key));
+    }
+
+    @Test
+    public void ThrowingLoadListenerTest() throws Exception {
+        PropertyKey<String> base = PropertyKey.register(String.class);
+        LoadingPropertyKey<String> key = LoadingPropertyKey.create(base, map -> CompletableFuture.completedFuture("loaded"));
+        PropertyMap map = PropertyMap.create();
+        AtomicInteger updates = new AtomicInteger();
+        map.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> {
+            if (updates.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+        });
+
+        CompletableFuture<String> failed = map.getPropertyAsync(key);
+        assert failed.isCompletedExceptionally();
+        assertThrows(ExecutionException.class, failed::get);
+
+        map.clear();
+        CompletableFuture<String> retried = map.getPropertyAsync(key);
+        assert retried != failed;
+        assert retried.get(1, TimeUnit.SECONDS).equals("loaded");
+        assert map.getProperty(base).equals("loaded");
+    }
+
+    @Test
+    public void CustomPropertyCacheTest() throws Exception {
+        List<PropertyCache.Entry> touched = new ArrayList<>();
+        PropertyCache cache = new PropertyCache() {
+
+            private final List<PropertyCache.Entry> entries = new ArrayList<>();
+
+            @Override
+            public int getCapacity() {
+                return 1;
+            }
+
+            @Override
+            public int getSize() {
+                return entries.size();
+            }
+
+            @Override
+            public void admit(@NotNull PropertyCache.Entry entry) {
+                if (!entries.contains(entry)) {
+                    entries.add(entry);
+                    if (entries.size() > 1) {
+                        entries.removeFirst().evict();
+                    }
+                }
+            }
+
+            @Override
+            public void touch(@NotNull PropertyCache.Entry entry) {
+                touched.add(entry);
+            }
+
+            @Override
+            public void remove(@NotNull PropertyCache.Entry entry) {
+                entries.remove(entry);
+            }
+
+        };
+
+        PropertyKey<String> base = PropertyKey.register(String.class);
+        LoadingPropertyKey<String> key = LoadingPropertyKey.create(base, map -> CompletableFuture.completedFuture("loaded")).cache(cache);
+        PropertyMap first = PropertyMap.create();
+        PropertyMap second = PropertyMap.create();
+
+        assert first.getPropertyAsync(key).get().equals("loaded");
+        assert first.getPropertyAsync(key).get().equals("loaded");
+        assert touched.size() == 1;
+        assert cache.getSize() == 1;
+
+        assert second.getPropertyAsync(key).get().equals("loaded");
+        assert cache.getSize() == 1;
+        assert first.getProperty(base) == null;
+        assert second.getProperty(base).equals("loaded");
+
+        PropertyCache.Entry foreign = () -> {};
+        assertThrows(IllegalArgumentException.class, () -> PropertyCache.create(1).admit(foreign));
+    }
+
+    @Test
+    public void FootprintTest() {
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        PropertyMap empty = PropertyMap.create();
+        PropertyMapFootprint emptyFootprint = empty.footprint();
+        assert emptyFootprint.propertyCount() == 0;
+        assert emptyFootprint.emitter() == null;
+
+        PropertyMap small = PropertyMap.create();
+        small.setProperty(key, 1);
+        small.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> {});
+        small.observe(PropertyMap.UPDATE_PROPERTY_KEY, update -> {});
+        PropertyMapFootprint smallFootprint = small.footprint();
+        assert smallFootprint.keys().equals(List.of(key.getIdentifier()));
+        assert smallFootprint.estimatedBytes() > emptyFootprint.estimatedBytes();
+        assert smallFootprint.emitter().subscribers().get(PropertyMap.UPDATE_PROPERTY_KEY) == 2;
+        assert smallFootprint.totalBytes() > smallFootprint.estimatedBytes();
+
+        PropertyMap large = PropertyMap.create();
+        for (int i = 0; i < 100; i++) {
+            large.setProperty("key" + i, i);
+        }
+
+        assert large.footprint().estimatedBytes() > smallFootprint.estimatedBytes();
+        assert PropertyMap.create(PropertyMapOptions.defaults().readOptimized(true)).footprint().propertyCount() == 0;
+        assert PropertyMap.createConfined().footprint().propertyCount() == 0;
+
+        FootprintCensus census = FootprintCensus.create();
+        List.of(empty, small, large).parallelStream().forEach(census::add);
+        assert census.getMapCount() == 3;
+        assert census.getEmitterCount() == 1;
+        assert census.getPropertyCounts().get(key.getIdentifier()) == 1;
+        assert census.getPropertyCounts().get("key5") == 1;
+        assert census.getSubscriberCounts().get(PropertyMap.UPDATE_PROPERTY_KEY) == 2;
+        assert census.getTotalBytes() == empty.footprint().totalBytes() + small.footprint().totalBytes() + large.footprint().totalBytes();
+    }
+
+    @Test
+    public void DeferredUpdateTest() {
+        UpdateScheduler scheduler = UpdateScheduler.create();
+        PropertyMapOptions options = PropertyMapOptions.defaults().deferUpdates(scheduler);
+        PropertyMap first = PropertyMap.create(options);
+        PropertyMap second = PropertyMap.create(options);
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> other = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> reverted = PropertyKey.register(Integer.class);
+
+        List<PropertyUpdate> updates = new ArrayList<>();
+        first.observe(PropertyMap.UPDATE_PROPERTY_KEY, updates::add);
+        second.observe(PropertyMap.UPDATE_PROPERTY_KEY, updates::add);
+        first.observe(PropertyMap.UPDATE_PROPERTIES_KEY, batch -> updates.addAll(batch.updates()));
+
+        Integer original = 1000;
+        first.setProperty(reverted, original);
+        scheduler.flush();
+        updates.clear();
+
+        for (int i = 0; i < 100; i++) {
+            first.setProperty(key, i);
+            second.updatePropertyAndGet(key, v -> v == null ? 0 : v + 1);
+        }
+
+        first.updateAll(Set.of(other), view -> PropertyChanges.create().set(other, 5));
+        first.setProperty(reverted, 2000);
+        first.setProperty(reverted, original);
+
+        assert updates.isEmpty();
+        assert scheduler.getPendingCount() == 2;
+
+        scheduler.flush();
+        assert scheduler.getPendingCount() == 0;
+        assert updates.size() == 3;
+        assert updates.contains(new PropertyUpdate(key.getIdentifier(), null, 99));
+        assert updates.contains(new PropertyUpdate(other.getIdentifier(), null, 5));
+
+        scheduler.flush();
+        assert updates.size() == 3;
+
+        first.clearProperty(key);
+        scheduler.flush();
+        assert updates.getLast().equals(new PropertyUpdate(key.getIdentifier(), 99, null));
+    }
+
+    @Test
+    public void KeyEqualityBatchTest() {
+        UpdateScheduler scheduler = UpdateScheduler.create();
+        PropertyMap immediate = PropertyMap.create();
+        PropertyMap deferred = PropertyMap.create(PropertyMapOptions.defaults().deferUpdates(scheduler));
+        PropertyKey<String> key = PropertyKey.register(String.class).withEquality(PropertyEquality.EQUALS);
+
+        List<PropertyUpdate> updates = new ArrayList<>();
+        immediate.observe(PropertyMap.UPDATE_PROPERTIES_KEY, batch -> updates.addAll(batch.updates()));
+        deferred.observe(PropertyMap.UPDATE_PROPERTY_KEY, updates::add);
+
+        immediate.setProperty(key, "value");
+        deferred.setProperty(key, "value");
+        scheduler.flush();
+        updates.clear();
+
+        PropertyBatchUpdate batch = immediate.updateAll(Set.of(key), view -> PropertyChanges.create().set(key, new String("value")));
+        assert batch.updates().isEmpty();
+        deferred.updateAll(Set.of(key), view -> PropertyChanges.create().set(key, new String("value")));
+
+        deferred.setProperty(key, "other");
+        deferred.setProperty(key, new String("value"));
+        scheduler.flush();
+        assert updates.isEmpty();
+
+        deferred.setProperty(key, "other");
+        scheduler.flush();
+        assert updates.equals(List.of(new PropertyUpdate(key.getIdentifier(), "value", "other")));
+    }
+
+    @Test
+    public void FlyweightUpdateTest() {
+        PropertyMap map = PropertyMap.create(PropertyMapOptions.defaults().flyweightUpdates(true));
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        PropertyKey<Integer> mirror = PropertyKey.register(Integer.class);
+
+        List<PropertyUpdateView> views = new ArrayList<>();
+        List<PropertyUpdate> copies = new ArrayList<>();
+        map.observe(PropertyMap.UPDATE_PROPERTY_VIEW_KEY, view -> {
+            if (view.key().equals(key.getIdentifier())) {
+                map.setProperty(mirror, (Integer) view.curr());
+            }
+
+            views.add(view);
+            copies.add(view.copy());
+        });
+
+        map.setProperty(key, 1);
+        map.updatePropertyAndGet(key, v -> v + 1);
+        map.clearProperty(key);
+
+        assert copies.equals(List.of(
+            new PropertyUpdate(mirror.getIdentifier(), null, 1),
+            new PropertyUpdate(key.getIdentifier(), null, 1),
+            new PropertyUpdate(mirror.getIdentifier(), 1, 2),
+            new PropertyUpdate(key.getIdentifier(), 1, 2),
+            new PropertyUpdate(mirror.getIdentifier(), 2, null),
+            new PropertyUpdate(key.getIdentifier(), 2, null)
+        ));
+
+        assert views.get(0) != views.get(1);
+        assert views.get(1) == views.get(3);
+        assertThrows(IllegalStateException.class, () -> views.getFirst().key());
+
+        List<PropertyUpdate> updates = new ArrayList<>();
+        map.observe(PropertyMap.UPDATE_PROPERTY_KEY, updates::add);
+        map.setProperty(mirror, 5);
+        assert updates.equals(List.of(new PropertyUpdate(mirror.getIdentifier(), null, 5)));
+        assert copies.getLast().equals(updates.getLast());
+    }
+
+    @Test
+    public void FlyweightAllocationTest() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+
+        PropertyMap map = PropertyMap.create(PropertyMapOptions.defaults().flyweightUpdates(true));
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        int[] sum = new int[1];
+        map.observe(PropertyMap.UPDATE_PROPERTY_VIEW_KEY, view -> sum[0] += (Integer) view.curr());
+
+        for (int i = 0; i < 200_000; i++) {
+            map.setProperty(key, i & 63);
+        }
+
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100_000; i++) {
+            map.setProperty(key, i & 63);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assert sum[0] > 0;
+        assert allocated < 16_384 : allocated + " bytes allocated by 100000 flyweight writes";
+    }
+
+    @Test
+    public void BulkOperationTest() {
+        PropertyKey<Integer> counter = PropertyKey.register(Integer.class);
+        PropertyKey<String> name = PropertyKey.register(String.class);
+        PropertyKey<String> tag = PropertyKey.register(String.class);
+
+        List<PropertyHolder> holders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            PropertyHolder holder = new DummyPropertyHolder();
+            if (i % 2 == 0) {
+                holder.setProperty(counter, i);
+            }
+
+            holders.add(holder);
+        }
+
+        AtomicInteger batches = new AtomicInteger();
+        holders.getFirst().observe(PropertyMap.UPDATE_PROPERTIES_KEY, batch -> batches.incrementAndGet());
+
+        BulkStats stats = PropertyHolders.bulk(holders).pool(new ForkJoinPool(4)).apply(counter, v -> v == null ? null : v + 1);
+        assert stats.holders() == 1000;
+        assert stats.changed() == 500;
+        assert stats.failed() == 0;
+        assert stats.partitions() > 1;
+        assert holders.get(10).getProperty(counter) == 11;
+        assert holders.get(11).getProperty(counter) == null;
+
+        PropertyHolder source = new DummyPropertyHolder();
+        source.setProperty(name, "name");
+        stats = PropertyHolders.bulk(holders).copyFrom(source, Set.of(name, tag));
+        assert stats.changed() == 1000;
+        assert holders.stream().allMatch(holder -> "name".equals(holder.getProperty(name)) && !holder.hasProperty(tag));
+        assert batches.get() == 1;
+
+        stats = PropertyHolders.bulk(holders).clear(Set.of(counter, name));
+        assert stats.changed() == 1000;
+        assert holders.stream().noneMatch(holder -> holder.hasProperty(counter) || holder.hasProperty(name));
+        assert batches.get() == 2;
+
+        stats = PropertyHolders.bulk(holders).clear(Set.of(counter));
+        assert stats.changed() == 0;
+        assert batches.get() == 2;
+
+        stats = PropertyHolders.bulk(holders).apply(counter, v -> {
+            throw new IllegalStateException();
+        });
+        assert stats.holders() == 1000;
+        assert stats.failed() == 1000;
+        assert stats.failures().getFirst() instanceof IllegalStateException;
+    }
+
+    @Test
+    public void ObservableCollectionTest() {
+        PropertyMap map = PropertyMap.create();
+        ObservableListProperty<String> listProperty = ObservableListProperty.create(String.class);
+        ObservableMapProperty<String, Integer> mapProperty = ObservableMapProperty.create(String.class, Integer.class);
+
+        List<PropertyUpdate> updates = new ArrayList<>();
+        List<PropertyListDelta> listDeltas = new ArrayList<>();
+        List<PropertyMapDelta> mapDeltas = new ArrayList<>();
+        map.observe(PropertyMap.UPDATE_PROPERTY_KEY, updates::add);
+        map.observe(PropertyMap.UPDATE_LIST_KEY, listDeltas::add);
+        map.observe(PropertyMap.UPDATE_MAP_KEY, mapDeltas::add);
+
+        ObservableList<String> list = map.getList(listProperty);
+        assert map.getList(listProperty) == list;
+        assert map.getProperty(listProperty.getKey()) == list;
+        assert updates.size() == 1;
+
+        String id = listProperty.getKey().getIdentifier();
+        list.add("a");
+        list.add("c");
+        list.add(1, "b");
+        assert list.set(2, "d").equals("c");
+        assert list.remove("a");
+        assert !list.remove("x");
+        assert list.snapshot().equals(List.of("b", "d"));
+        list.clear();
+        list.clear();
+
+        assert listDeltas.equals(List.of(
+            new PropertyListDelta(id, DeltaType.ADDED, 0, null, "a", 1),
+            new PropertyListDelta(id, DeltaType.ADDED, 1, null, "c", 2),
+            new PropertyListDelta(id, DeltaType.ADDED, 1, null, "b", 3),
+            new PropertyListDelta(id, DeltaType.REPLACED, 2, "c", "d", 4),
+            new PropertyListDelta(id, DeltaType.REMOVED, 0, "a", null, 5),
+            new PropertyListDelta(id, DeltaType.CLEARED, -1, null, null, 6)
+        ));
+
+        assertThrows(NullPointerException.class, () -> list.add(null));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.remove(0));
+
+        ObservableMap<String, Integer> values = map.getMap(mapProperty);
+        String mapId = mapProperty.getKey().getIdentifier();
+        assert values.put("a", 1) == null;
+        assert values.put("a", 2) == 1;
+        assert values.remove("b") == null;
+        assert values.remove("a") == 2;
+        values.put("c", 3);
+        values.clear();
+
+        assert values.isEmpty();
+        assert values.getVersion() == 5;
+        assert mapDeltas.equals(List.of(
+            new PropertyMapDelta(mapId, DeltaType.ADDED, "a", null, 1, 1),
+            new PropertyMapDelta(mapId, DeltaType.REPLACED, "a", 1, 2, 2),
+            new PropertyMapDelta(mapId, DeltaType.REMOVED, "a", 2, null, 3),
+            new PropertyMapDelta(mapId, DeltaType.ADDED, "c", null, 3, 4),
+            new PropertyMapDelta(mapId, DeltaType.REMOVED, "c", 3, null, 5)
+        ));
+        assert updates.size() == 2;
+    }
+
+    @Test
+    public void CounterPropertyTest() throws InterruptedException {
+        PropertyMap map = PropertyMap.create();
+        CounterProperty silent = CounterProperty.create();
+        CounterProperty sampled = CounterProperty.create().sampled(1);
+        CounterProperty periodic = CounterProperty.create().periodic(Duration.ofMillis(20));
+
+        List<PropertyCounterUpdate> updates = new CopyOnWriteArrayList<>();
+        map.observe(PropertyMap.UPDATE_COUNTER_KEY, updates::add);
+
+        PropertyCounter counter = map.getCounter(silent);
+        assert map.getCounter(silent) == counter;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    counter.increment();
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assert counter.sum() == 80000;
+        assert updates.isEmpty();
+
+        PropertyCounter sampledCounter = map.getCounter(sampled);
+        sampledCounter.add(5);
+        sampledCounter.decrement();
+        assert updates.equals(List.of(
+            new PropertyCounterUpdate(sampled.getKey().getIdentifier(), 5),
+            new PropertyCounterUpdate(sampled.getKey().getIdentifier(), 4)
+        ));
+
+        updates.clear();
+        PropertyCounter periodicCounter = map.getCounter(periodic);
+        periodicCounter.add(3);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (updates.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assert updates.getFirst().equals(new PropertyCounterUpdate(periodic.getKey().getIdentifier(), 3));
+
+        Thread.sleep(100);
+        assert updates.size() == 1;
+
+        periodicCounter.reset();
+        assert periodicCounter.sum() == 0;
+        assert updates.getLast().sum() == 0;
+
+        assertThrows(IllegalArgumentException.class, () -> CounterProperty.create().sampled(0));
+        assertThrows(UnsupportedOperationException.class, () -> PropertyMap.createConfined().getCounter(periodic));
+        assert PropertyMap.createConfined().getCounter(sampled).sum() == 0;
+    }
+
+    @Test
+    public void AtMostOnceUpdateTest() throws InterruptedException {
+        PropertyMap map = PropertyMap.create();
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        PropertyKey<String> lazy = PropertyKey.register(String.class);
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int j = 0; j < 1000; j++) {
+                    map.updatePropertyAndGet(key, v -> {
+                        applied.incrementAndGet();
+                        return v == null ? 1 : v + 1;
+                    });
+                    map.getPropertyOrCreateDefault(lazy, () -> {
+                        created.incrementAndGet();
+                        return "created";
+                    });
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assert map.getProperty(key) == 4000;
+        assert applied.get() == 4000;
+        assert created.get() == 1;
+    }
+
+    @Test
+    public void CompositeSubscriptionTest() {
+        PropertyMap map = PropertyMap.create(ObserverEmitter.create(EmitterOptions.defaults().errorHandler((_sub, _error) -> {})));
+        PropertyHolder holder = () -> map;
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        List<PropertyUpdate> updates = new ArrayList<>();
+
+        ObserverSub sub = holder.observe(update -> {
+            updates.add(update);
+            throw new IllegalStateException();
+        });
+
+        holder.setProperty(key, 1);
+        holder.updateProperties(Set.of(key), view -> PropertyChanges.create().set(key, 2));
+
+        SubscriberStats stats = Objects.requireNonNull(sub.getStats());
+        assert updates.size() == 2;
+        assert stats.getFailures() == 2;
+        assert stats.getConsecutiveFailures() == 1;
+        assert !stats.isSuspended();
+
+        sub.cancel();
+        holder.setProperty(key, 3);
+        assert updates.size() == 2;
+        assert PropertyMap.create().observe(PropertyMap.UPDATE_PROPERTY_KEY, _update -> {}).getStats() == null;
+    }
+
+    @Test
+    public void InPlaceWriteTest() throws InterruptedException {
+        PropertyMap map = PropertyMap.create();
+        PropertyKey<Integer> key = PropertyKey.register(Integer.class);
+        int writes = 200_000;
+
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < writes; i++) {
+                map.setProperty(key, i);
+            }
+        });
+        Thread churner = Thread.ofPlatform().start(() -> {
+            for (int i = 0; writer.isAlive(); i++) {
+                String other = "other" + (i % 4);
+                map.setProperty(other, i);
+                map.clearProperty(other);
+            }
+        });
+
+        writer.join();
+        churner.join();
+        assert map.getProperty(key) == writes - 1;
+        assert map.getProperties().size() == 1;
+    }
+
 }
@@ -0,0 +1,42 @@
+package dev.tommyjs.jobserve.dummy;
+
+import dev.tommyjs.jobserve.observer.ObserverEmitter;
+import dev.tommyjs.jobserve.observer.ObserverSub;
+import dev.tommyjs.jobserve.observer.key.ObserverKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Emitter implementing only the methods an {@link ObserverEmitter} had before priorities, probes
+ * and asynchronous emission were added, relying on the defaults for everything else.
+ */
+@SuppressWarnings("unchecked")
+public class DummyEmitter implements ObserverEmitter {
+
+    private final Map<ObserverKey<?>, List<Consumer<Object>>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public <T> @NotNull ObserverSub observe(@NotNull ObserverKey<T> key, @NotNull Consumer<T> consumer) {
+        List<Consumer<Object>> consumers = subscribers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+        Consumer<Object> subscriber = (Consumer<Object>) consumer;
+        consumers.add(subscriber);
+        return () -> consumers.remove(subscriber);
+    }
+
+    @Override
+    public <T> void emit(@NotNull ObserverKey<T> key, @Nullable T value) {
+        List<Consumer<Object>> consumers = subscribers.get(key);
+        if (consumers != null) {
+            for (Consumer<Object> consumer : consumers) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+}